@@ -0,0 +1,93 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+/*
+    JMH benchmarks of the hot paths of Board and the evaluators, the
+    same operations as the non-search cases of Benchmarks. Each call
+    runs on the next of the benchmark positions, so the result is the
+    mean over all of them
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    private IntToLongFunction add;
+    private IntToLongFunction playUndo;
+    private IntToLongFunction getSuccessors;
+    private IntToLongFunction firstSuccessor;
+    private IntToLongFunction consecutiveChips;
+    private IntToLongFunction windowEvaluator;
+    private IntToLongFunction consecutiveChipsEvaluator;
+
+    private int positions;
+    private int index; // position of the last call
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        add = Operations.get("Board.add");
+        playUndo = Operations.get("Board.play+undo");
+        getSuccessors = Operations.get("Board.getSuccessors");
+        firstSuccessor = Operations.get("Board.successors (first only)");
+        consecutiveChips = Operations.get("Board.calculateConsecutiveChips (with deepCopy)");
+        windowEvaluator = Operations.get("evalFn WindowEvaluator");
+        consecutiveChipsEvaluator = Operations.get("evalFn ConsecutiveChipsEvaluator (with deepCopy)");
+        positions = Operations.positions();
+    }
+
+    private int nextPosition() {
+        index = index + 1 < positions ? index + 1 : 0;
+        return index;
+    }
+
+    @Benchmark
+    public long add() {
+        return add.applyAsLong(nextPosition());
+    }
+
+    @Benchmark
+    public long playUndo() {
+        return playUndo.applyAsLong(nextPosition());
+    }
+
+    @Benchmark
+    public long getSuccessors() {
+        return getSuccessors.applyAsLong(nextPosition());
+    }
+
+    @Benchmark
+    public long firstSuccessor() {
+        return firstSuccessor.applyAsLong(nextPosition());
+    }
+
+    @Benchmark
+    public long consecutiveChipsWithCopy() {
+        return consecutiveChips.applyAsLong(nextPosition());
+    }
+
+    @Benchmark
+    public long windowEvaluator() {
+        return windowEvaluator.applyAsLong(nextPosition());
+    }
+
+    @Benchmark
+    public long consecutiveChipsEvaluatorWithCopy() {
+        return consecutiveChipsEvaluator.applyAsLong(nextPosition());
+    }
+}
@@ -0,0 +1,25 @@
+package benchmarks;
+
+import java.util.function.IntToLongFunction;
+
+/*
+    Access to the operations of Benchmarks, which is in the default package
+    like the rest of the game. JMH doesn't allow benchmarks in the default
+    package, and classes in a package can't use classes outside one, so the
+    operations are looked up by reflection once, before they're measured
+*/
+final class Operations {
+
+    private Operations() {
+    }
+
+    // returns the operation of Benchmarks named "name", run on the position at its argument
+    static IntToLongFunction get(String name) throws ReflectiveOperationException {
+        return (IntToLongFunction) Class.forName("Benchmarks").getMethod("operation", String.class).invoke(null, name);
+    }
+
+    // returns the number of positions the operations can be run on
+    static int positions() throws ReflectiveOperationException {
+        return (Integer) Class.forName("Benchmarks").getMethod("positions").invoke(null);
+    }
+}
@@ -0,0 +1,64 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntToLongFunction;
+
+/*
+    JMH benchmark of MinimaxAgent.getAction() at the depths searched by
+    Benchmarks, each call on the next of the benchmark positions with an
+    empty transposition table. The states expanded are counted in the
+    secondary "states" result, so both are reported per second
+*/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"4", "6", "8"})
+    public int depth;
+
+    private IntToLongFunction search;
+    private int positions;
+    private int index; // position of the last call
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class States {
+        public long states;
+
+        // counters aren't reset by JMH, so each iteration starts from 0 here
+        @Setup(Level.Iteration)
+        public void reset() {
+            states = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        search = Operations.get("MinimaxAgent.getAction depth " + depth);
+        positions = Operations.positions();
+    }
+
+    @Benchmark
+    public void getAction(States states) {
+        index = index + 1 < positions ? index + 1 : 0;
+        states.states += search.applyAsLong(index);
+    }
+}
@@ -1,4 +1,5 @@
 import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
 
 /*
     The Agent class is an AI player which can be
@@ -9,7 +10,9 @@ public class Agent {
     private char color; // chip color of this agent
     private char otherColor; // chip color of opposing player
     private Board board; // board object which this agent is playing on
-    private int count = 0; // total number of states agent has expanded in a search
+    // total number of states agent has expanded in a search, which may be
+    // incremented by several threads at once
+    private final LongAdder count = new LongAdder();
 
     // default constructor sets agent's chip color to black
     public Agent(Board board) {
@@ -27,7 +30,11 @@ public class Agent {
     // returns column that agent chooses to drop a chip
     public char getAction() {
         // for Agent objects, simply choose a random column
-        return Board.letters[(new Random()).nextInt(7)];
+        return Board.letters[(new Random()).nextInt(Board.WIDTH)];
+    }
+
+    // stops a search running on another thread... Agent objects don't search, so there's nothing to stop
+    public void cancel() {
     }
 
     // set chip color of agent object
@@ -38,18 +45,23 @@ public class Agent {
 
     // increment count field
     public void incrementCount() {
-        count++;
+        count.increment();
+    }
+
+    // add "states" to count field
+    public void addCount(long states) {
+        count.add(states);
     }
 
     // set count field to 0
     public void resetCount() {
-        count = 0;
+        count.reset();
     }
 
     // getters for fields
 
-    public int getCount() {
-        return count;
+    public long getCount() {
+        return count.sum();
     }
 
     public char getColor() {
@@ -64,6 +76,11 @@ public class Agent {
         return board;
     }
 
+    // set board which this agent is playing on, so that one agent can be reused for several games
+    public void setBoard(Board board) {
+        this.board = board;
+    }
+
     public char oppositeColor(char color) {
         if(color == 'r') {
             return 'b';
@@ -0,0 +1,143 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    Searches many positions at once on a fixed number of worker threads.
+    Each worker keeps one MinimaxAgent which is pointed at the board of
+    every request it takes, so its transposition table and move ordering
+    tables are reused rather than allocated per request. Workers either
+    have a table each or all share one table given to the constructor
+
+    At most "threads + queueCapacity" requests can be waiting or running:
+    submit() rejects requests beyond that, while evaluate() waits for
+    earlier requests to finish before submitting more
+*/
+public class BatchEvaluator implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore slots; // one permit for every request that can be waiting or running
+    private final ThreadLocal<MinimaxAgent> agents; // agent of each worker thread
+    private volatile OpeningBook book; // solved opening positions used by every worker, or null
+
+    // workers each have a table of the default size
+    public BatchEvaluator(int threads, int queueCapacity) {
+        this(threads, queueCapacity, null);
+    }
+
+    // workers share "sharedTable" if it isn't null
+    public BatchEvaluator(int threads, int queueCapacity, TranspositionTable sharedTable) {
+        AtomicInteger workers = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "batch-evaluator-" + workers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        slots = new Semaphore(threads + queueCapacity);
+        agents = ThreadLocal.withInitial(() -> new MinimaxAgent(new Board(), 'r', 1,
+                sharedTable != null ? sharedTable : new TranspositionTable()));
+    }
+
+    // schedules "request", throwing RejectedExecutionException if the queue is full
+    public Future<BatchResult> submit(BatchRequest request) {
+        if(!slots.tryAcquire()) {
+            throw new RejectedExecutionException("Queue is full");
+        }
+        return schedule(request);
+    }
+
+    // searches every request and returns their results in the same order, waiting
+    // for space in the queue rather than rejecting requests
+    public List<BatchResult> evaluate(List<BatchRequest> requests) throws InterruptedException {
+        List<Future<BatchResult>> futures = new ArrayList<>(requests.size());
+        for(BatchRequest request : requests) {
+            slots.acquire();
+            futures.add(schedule(request));
+        }
+
+        List<BatchResult> results = new ArrayList<>(requests.size());
+        for(Future<BatchResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    // submits "request" to the executor once a slot has been acquired for it
+    private Future<BatchResult> schedule(BatchRequest request) {
+        long submitted = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                try {
+                    return search(request, submitted);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    // searches "request" with this thread's agent
+    private BatchResult search(BatchRequest request, long submitted) {
+        long start = System.nanoTime();
+        long queued = start - submitted;
+
+        Board board;
+        try {
+            board = request.toBoard();
+        } catch (IllegalArgumentException e) {
+            return new BatchResult(request, e.getMessage(), queued);
+        }
+        if(board.getWinner() != null || board.isTie()) {
+            return new BatchResult(request, "The game is over", queued);
+        }
+        if(request.getDepth() < 1) {
+            return new BatchResult(request, "Depth must be at least 1", queued);
+        }
+
+        MinimaxAgent agent = agents.get();
+        agent.setBoard(board);
+        agent.setColor(request.getColor());
+        agent.setDepth(request.getDepth());
+        agent.setOpeningBook(book);
+
+        // the time limit includes the time spent in the queue, but the first ply is always searched
+        char action;
+        Duration timeLimit = request.getTimeLimit();
+        if(timeLimit != null) {
+            action = agent.getAction(timeLimit.minusNanos(queued), request.getDepth());
+        }
+        else {
+            action = agent.getAction();
+        }
+
+        return new BatchResult(request, action, agent.getValue(), agent.getCompletedDepth(), agent.getCount(),
+                queued, System.nanoTime() - start);
+    }
+
+    public OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    // stops the workers once the requests already submitted have finished
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,112 @@
+import java.time.Duration;
+
+/*
+    A position to be searched by a BatchEvaluator, given either as the
+    moves played from the empty board or as a board state, along with
+    the limits of its search. With a time limit, the search deepens one
+    ply at a time up to "depth" until the time runs out, counting the
+    time spent waiting in the queue... otherwise it searches to "depth"
+*/
+public class BatchRequest {
+
+    private final String moves; // column letters starting with red, or null if given as a state
+    private final char[][] state; // board state (row 0 is the top), or null if given as moves
+    private final char color; // color to move
+    private final int depth; // max depth of the search
+    private final Duration timeLimit; // time allowed from submission to result, or null for none
+
+    // position reached by "moves", searched to "depth"
+    public BatchRequest(String moves, int depth) {
+        this(moves, depth, null);
+    }
+
+    public BatchRequest(String moves, int depth, Duration timeLimit) {
+        this.moves = moves;
+        this.state = null;
+        this.color = moves.length() % 2 == 0 ? 'r' : 'b';
+        this.depth = depth;
+        this.timeLimit = timeLimit;
+    }
+
+    // position given by "state", where "color" is to move
+    public BatchRequest(char[][] state, char color, int depth) {
+        this(state, color, depth, null);
+    }
+
+    public BatchRequest(char[][] state, char color, int depth, Duration timeLimit) {
+        this.moves = null;
+        this.state = state;
+        this.color = color;
+        this.depth = depth;
+        this.timeLimit = timeLimit;
+    }
+
+    // returns a new board for the position, throwing IllegalArgumentException if it isn't valid
+    public Board toBoard() {
+        if(moves != null) {
+            return Board.fromMoves(moves);
+        }
+
+        if(state.length != Board.HEIGHT) {
+            throw new IllegalArgumentException("State must have " + Board.HEIGHT + " rows");
+        }
+        for(char[] row : state) {
+            if(row.length != Board.WIDTH) {
+                throw new IllegalArgumentException("State rows must have " + Board.WIDTH + " columns");
+            }
+        }
+        if(color != 'r' && color != 'b') {
+            throw new IllegalArgumentException("Invalid color " + color);
+        }
+
+        // every space must be a chip or empty (0, as in Board.getState()), with no chip above an empty space
+        int red = 0;
+        int black = 0;
+        for(int c = 0; c < Board.WIDTH; c++) {
+            boolean chipAbove = false;
+            for(int r = 0; r < Board.HEIGHT; r++) {
+                char space = state[r][c];
+                if(space == 'r') {
+                    red++;
+                }
+                else if(space == 'b') {
+                    black++;
+                }
+                else if(space != 0) {
+                    throw new IllegalArgumentException("Invalid space " + space + " in column " + Board.letters[c]);
+                }
+                else if(chipAbove) {
+                    throw new IllegalArgumentException("Chip above an empty space in column " + Board.letters[c]);
+                }
+                chipAbove |= space != 0;
+            }
+        }
+
+        // red moves first, so red has one more chip than black when black is to move and as many otherwise
+        if(red - black != (color == 'r' ? 0 : 1)) {
+            throw new IllegalArgumentException(red + " red and " + black + " black chips can't have " + color + " to move");
+        }
+        return new Board(state);
+    }
+
+    // returns the moves of the position, or null if it was given as a state
+    public String getMoves() {
+        return moves;
+    }
+
+    public char[][] getState() {
+        return state;
+    }
+
+    public char getColor() {
+        return color;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public Duration getTimeLimit() {
+        return timeLimit;
+    }
+}
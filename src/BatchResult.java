@@ -0,0 +1,84 @@
+/*
+    Result of searching a BatchRequest: the chosen column and its value
+    (from the point of view of the color to move, see MinimaxAgent), or
+    an error message if the position couldn't be searched
+*/
+public class BatchResult {
+
+    private final BatchRequest request;
+    private final char action; // column letter chosen, or 0 if there was an error
+    private final int value; // value of the chosen column
+    private final int depth; // depth of the search which chose the column, or 0 for a book move
+    private final long nodes; // states expanded by the search
+    private final long queuedNanos; // time from submission until the search started
+    private final long searchNanos; // time spent searching
+    private final String error; // reason the position couldn't be searched, or null
+
+    public BatchResult(BatchRequest request, char action, int value, int depth, long nodes,
+                       long queuedNanos, long searchNanos) {
+        this.request = request;
+        this.action = action;
+        this.value = value;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.queuedNanos = queuedNanos;
+        this.searchNanos = searchNanos;
+        this.error = null;
+    }
+
+    // result of a request which couldn't be searched
+    public BatchResult(BatchRequest request, String error, long queuedNanos) {
+        this.request = request;
+        this.action = 0;
+        this.value = 0;
+        this.depth = 0;
+        this.nodes = 0;
+        this.queuedNanos = queuedNanos;
+        this.searchNanos = 0;
+        this.error = error;
+    }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    public BatchRequest getRequest() {
+        return request;
+    }
+
+    public char getAction() {
+        return action;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getQueuedNanos() {
+        return queuedNanos;
+    }
+
+    public long getSearchNanos() {
+        return searchNanos;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public String toString() {
+        if(error != null) {
+            return "error: " + error;
+        }
+        return String.format("%c value %d depth %d nodes %d queued %.3f ms searched %.3f ms", action, value, depth,
+                nodes, queuedNanos / 1000000.0, searchNanos / 1000000.0);
+    }
+}
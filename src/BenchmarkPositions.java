@@ -0,0 +1,36 @@
+/*
+    Fixed set of positions used by the benchmarks, given as moves
+    from an empty board starting with red. They range from the empty
+    board to midgame positions where both colors have threats
+*/
+public class BenchmarkPositions {
+
+    public static final String[] MOVES = {
+            "",
+            "D",
+            "DD",
+            "DCDE",
+            "DDCCEB",
+            "CDDEEC",
+            "DDDDCE",
+            "DCEDEBCC",
+            "DDDCCEFEG",
+            "DCDDECCEEF",
+            "DDDDDDCCCEEE",
+            "DCCDEDEEFCBB"
+    };
+
+    // returns a new board for each position
+    public static Board[] boards() {
+        Board[] boards = new Board[MOVES.length];
+        for(int i = 0; i < MOVES.length; i++) {
+            boards[i] = Board.fromMoves(MOVES[i]);
+        }
+        return boards;
+    }
+
+    // returns color to move in the position at "index"
+    public static char colorToMove(int index) {
+        return MOVES[index].length() % 2 == 0 ? 'r' : 'b';
+    }
+}
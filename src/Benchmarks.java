@@ -0,0 +1,184 @@
+import java.util.ArrayList;
+import java.util.function.IntToLongFunction;
+
+/*
+    Microbenchmarks for the hot paths of Board and MinimaxAgent,
+    run over the positions in BenchmarkPositions. Each benchmark is
+    run for a few warmup iterations so the JIT compiler has compiled
+    it, then for several measured iterations of a fixed length, and
+    the mean time per operation is printed. Search benchmarks also
+    print the number of states expanded per second
+
+    The JMH benchmarks in jmh (built with "mvn -P jmh package") run
+    the same operations under JMH, which should be preferred when it's
+    available... this runner needs nothing but the JDK
+
+    Usage: java Benchmarks [name filter]
+*/
+public class Benchmarks {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500000000L; // length of each iteration
+
+    private static final int[] SEARCH_DEPTHS = {4, 6, 8};
+
+    private static long sink; // results of every operation are added here so they can't be optimized away
+
+    private static final Board[] boards = BenchmarkPositions.boards();
+
+    // benchmarked operations with their names, and whether each is a search... each operation is run on
+    // the position at "index", and returns the number of states expanded for search benchmarks, or any
+    // value depending on its work otherwise
+    private static final ArrayList<String> names = new ArrayList<>();
+    private static final ArrayList<IntToLongFunction> operations = new ArrayList<>();
+    private static final ArrayList<Boolean> searches = new ArrayList<>();
+
+    static {
+        // add a chip to a copy of the board at every legal column, as the old search did for every successor
+        names.add("Board.add");
+        operations.add(index -> {
+            long result = 0;
+            for(int c = 0; c < Board.WIDTH; c++) {
+                Board copy = boards[index].deepCopy(boards[index]);
+                if(copy.add(c, BenchmarkPositions.colorToMove(index))) {
+                    result += copy.getHash();
+                }
+            }
+            return result;
+        });
+        searches.add(false);
+
+        // play and undo a chip at every legal column of the same board, as the search does now
+        names.add("Board.play+undo");
+        operations.add(index -> {
+            Board board = boards[index];
+            long result = 0;
+            for(int c = 0; c < Board.WIDTH; c++) {
+                if(board.play(c, BenchmarkPositions.colorToMove(index))) {
+                    result += board.getHash();
+                    board.undo();
+                }
+            }
+            return result;
+        });
+        searches.add(false);
+
+        names.add("Board.getSuccessors");
+        operations.add(index -> boards[index].getSuccessors(BenchmarkPositions.colorToMove(index)).size());
+        searches.add(false);
+
+        // the first successor only, as when the first move causes a cutoff
+        names.add("Board.successors (first only)");
+        operations.add(index -> boards[index].successors(BenchmarkPositions.colorToMove(index)).iterator().next().getChipsInPlay());
+        searches.add(false);
+
+        // copies have no consecutive chips calculated yet, so this includes a full calculation for both colors
+        names.add("Board.calculateConsecutiveChips (with deepCopy)");
+        operations.add(index -> boards[index].deepCopy(boards[index]).getConsecutiveChips('r', 1));
+        searches.add(false);
+
+        MinimaxAgent windowAgent = new MinimaxAgent(new Board(), 'r', 1);
+        names.add("evalFn WindowEvaluator");
+        operations.add(index -> windowAgent.evalFn(boards[index], 'r', 'b', 0));
+        searches.add(false);
+
+        MinimaxAgent chipsAgent = new MinimaxAgent(new Board(), 'r', 1);
+        chipsAgent.setEvaluator(new ConsecutiveChipsEvaluator());
+        names.add("evalFn ConsecutiveChipsEvaluator (with deepCopy)");
+        operations.add(index -> chipsAgent.evalFn(boards[index].deepCopy(boards[index]), 'r', 'b', 0));
+        searches.add(false);
+
+        // every search starts with an empty transposition table, which is reused to avoid allocating
+        // one each time, and kept small so that clearing it doesn't dominate shallow searches
+        TranspositionTable table = new TranspositionTable(4L * 1024 * 1024, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        for(int depth : SEARCH_DEPTHS) {
+            names.add("MinimaxAgent.getAction depth " + depth);
+            operations.add(index -> {
+                table.clear();
+                MinimaxAgent agent = new MinimaxAgent(boards[index], BenchmarkPositions.colorToMove(index), depth, table);
+                sink += agent.getAction();
+                return agent.getCount();
+            });
+            searches.add(true);
+        }
+    }
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+
+        for(int i = 0; i < names.size(); i++) {
+            if(names.get(i).contains(filter)) {
+                run(names.get(i), operations.get(i), searches.get(i));
+            }
+        }
+
+        // printing sink ensures it is used
+        System.out.println("(" + sink + ")");
+    }
+
+    // returns the operation named "name"... the JMH benchmarks in jmh find this by reflection,
+    // since classes in a package can't use classes in the default package
+    public static IntToLongFunction operation(String name) {
+        int index = names.indexOf(name);
+        if(index < 0) {
+            throw new IllegalArgumentException("Unknown benchmark " + name);
+        }
+        return operations.get(index);
+    }
+
+    public static int positions() {
+        return boards.length;
+    }
+
+    // runs warmup and measured iterations of "operation" and prints the results
+    private static void run(String name, IntToLongFunction operation, boolean search) {
+        for(int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(operation, search);
+        }
+
+        double[] nanosPerOperation = new double[MEASURED_ITERATIONS];
+        double totalNanos = 0;
+        long totalStates = 0;
+        for(int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long[] result = iteration(operation, search);
+            nanosPerOperation[i] = (double) result[0] / result[1];
+            totalNanos += result[0];
+            totalStates += result[2];
+        }
+
+        double mean = 0;
+        for(double nanos : nanosPerOperation) {
+            mean += nanos / MEASURED_ITERATIONS;
+        }
+        double variance = 0;
+        for(double nanos : nanosPerOperation) {
+            variance += (nanos - mean) * (nanos - mean) / MEASURED_ITERATIONS;
+        }
+
+        String line = String.format("%-52s %14.1f ns/op  +- %10.1f", name, mean, Math.sqrt(variance));
+        if(search) {
+            line += String.format("  %12.0f states/s", totalStates / (totalNanos / 1000000000.0));
+        }
+        System.out.println(line);
+    }
+
+    // runs "operation" over the positions until ITERATION_NANOS have passed, and returns
+    // the elapsed time, the number of operations and the number of states expanded
+    private static long[] iteration(IntToLongFunction operation, boolean search) {
+        long operations = 0;
+        long states = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            long result = operation.applyAsLong((int) (operations % boards.length));
+            if(search) {
+                states += result;
+            }
+            sink += result;
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while(elapsed < ITERATION_NANOS);
+        return new long[] {elapsed, operations, states};
+    }
+}
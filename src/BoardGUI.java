@@ -4,15 +4,35 @@ import java.awt.image.*;
 import java.io.*;
 import javax.imageio.*;
 import javax.swing.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class BoardGUI extends Canvas implements MouseListener, MouseMotionListener {
 
-    public static final int WIDTH = 700; // width of Connect Four board
-    public static final int HEIGHT = 620; // height of Connect Four board
+    public static final int WIDTH = 100 * Board.WIDTH; // width of Connect Four board
+    public static final int HEIGHT = 100 * Board.HEIGHT + 20; // height of Connect Four board
     public static final int HEADER_HEIGHT = 40; // height of area above board
 
     private Board board; // represents current board state
     private OnePlayerGame game; // used to make player/agent moves
+    private OpeningBook book; // solved opening positions, or null if no book has been generated
+    private EndgameDatabase endgame; // solved positions near the end of the game, or null if there is no database
+
+    // the agent searches on its own thread so that the window keeps responding while it thinks
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "agent-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private CompletableFuture<Character> search; // agent's current search, or null if it isn't searching
+
+    // progress of the current search, written by the search thread and read when painting
+    private volatile int searchDepth;
+    private volatile long searchNodes;
+    private volatile int searchColumn = -1;
 
     private Image gameDisp; // image that is drawn onto window
     private Graphics bufferGraphics; // graphics object used to draw onto gameDisp
@@ -21,9 +41,27 @@ public class BoardGUI extends Canvas implements MouseListener, MouseMotionListen
 
     public BoardGUI() {
 
-        // initialize boar and game fields
-        board = new Board();
-        game = new OnePlayerGame(board, new MinimaxAgent(board, 6));
+        // play openings from the opening book if one has been generated
+        File bookFile = new File(OpeningBook.DEFAULT_FILE);
+        if(bookFile.exists()) {
+            try {
+                book = OpeningBook.open(bookFile.toPath());
+            } catch (IOException e) {
+                System.out.println(e);
+            }
+        }
+
+        // likewise for the endgame database
+        File endgameFile = new File(EndgameDatabase.DEFAULT_FILE);
+        if(endgameFile.exists()) {
+            try {
+                endgame = EndgameDatabase.open(endgameFile.toPath());
+            } catch (IOException e) {
+                System.out.println(e);
+            }
+        }
+
+        newGame();
 
         // set background color
         setBackground(new Color(41, 128, 185));
@@ -36,6 +74,38 @@ public class BoardGUI extends Canvas implements MouseListener, MouseMotionListen
         addMouseMotionListener(this);
     }
 
+    // stops the agent's search, if there is one, and starts a new game
+    public void newGame() {
+        if(game != null) {
+            game.cancelAgentAction();
+        }
+        search = null;
+
+        // initialize board and game fields
+        board = new Board();
+        MinimaxAgent agent = new MinimaxAgent(board, 6);
+        agent.setOpeningBook(book);
+        agent.setEndgameDatabase(endgame);
+        agent.setProgressListener((depth, nodes, bestColumn, value) -> {
+            searchDepth = depth;
+            searchNodes = nodes;
+            searchColumn = bestColumn;
+            repaint();
+        });
+        game = new OnePlayerGame(board, agent);
+
+        // the agent searches the predicted reply while the player decides on a move
+        game.setPondering(true, false);
+
+        repaint();
+    }
+
+    // stops the agent's search and its thread, e.g. when the window is closed
+    public void shutdown() {
+        game.cancelAgentAction();
+        searchExecutor.shutdownNow();
+    }
+
     public void paint(Graphics g) {
 
         // on first time painting, initialize gameDisk and bufferGraphics
@@ -60,6 +130,15 @@ public class BoardGUI extends Canvas implements MouseListener, MouseMotionListen
         }
         bufferGraphics.drawString(status, 20, 25);
 
+        // show the progress of the agent's search while it's thinking
+        if(search != null) {
+            String progress = "Opponent's Turn...";
+            if(searchColumn >= 0) {
+                progress += " depth " + searchDepth + ", " + searchNodes + " states, best " + Board.letters[searchColumn];
+            }
+            bufferGraphics.drawString(progress, 20, 25);
+        }
+
         // instruct player if they have not made a move
         if(board.getChipsInPlay() == 0) {
             bufferGraphics.drawString("Click a column to drop a chip", WIDTH/2 - 100, 25);
@@ -68,16 +147,19 @@ public class BoardGUI extends Canvas implements MouseListener, MouseMotionListen
         // enable anti-aliasing
         ((Graphics2D) bufferGraphics).setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
+        // state array is built from the board's bitboards, so only request it once
+        char[][] state = board.getState();
+
         // nested for loop draws all chips onto the board
         for(int i = 0; i < Board.HEIGHT; i++) {
             for(int j = 0; j < Board.WIDTH; j++) {
                 try {
                     // draw red chip if the red player has made a move here
-                    if(board.getState()[i][j] == 'r') {
+                    if(state[i][j] == 'r') {
                         bufferGraphics.drawImage(redChip(), j * 100, i * 100 + HEADER_HEIGHT, this);
                     }
                     // draw red chip if the black player has made a move here
-                    else if(board.getState()[i][j] == 'b') {
+                    else if(state[i][j] == 'b') {
                         bufferGraphics.drawImage(blackChip(), j * 100, i * 100 + HEADER_HEIGHT, this);
                     }
                     // draw yellow chip if column j is being hovered over and the game has not ended
@@ -159,14 +241,34 @@ public class BoardGUI extends Canvas implements MouseListener, MouseMotionListen
         int col = (e.getX()-1)/100;
 
         game.makePlayerMove(col);
-        if(board.getWinner() == null) {
-            getGraphics().drawString("Opponent's Turn...", 20, 25);
-            game.requestAgentMove();
+        if(board.getWinner() == null && !board.isTie() && !game.isPlayerOneTurn()) {
+            startAgentMove();
         }
         repaint();
 
     }
 
+    // searches for the agent's move off the event thread, then makes the move on the event thread
+    // unless the search was cancelled or a new game has been started
+    private void startAgentMove() {
+        OnePlayerGame searchedGame = game;
+        searchColumn = -1;
+        search = game.requestAgentActionAsync(searchExecutor);
+        search.whenComplete((action, error) -> SwingUtilities.invokeLater(() -> {
+            if(game != searchedGame) {
+                return;
+            }
+            search = null;
+            if(error == null) {
+                game.makeAgentMove(action);
+            }
+            else if(!(error instanceof CancellationException || error.getCause() instanceof CancellationException)) {
+                System.out.println(error instanceof CompletionException ? error.getCause() : error);
+            }
+            repaint();
+        }));
+    }
+
     // if mouse leaves window, ensure hoveredColumn is set to -1
     public void mouseExited(MouseEvent e) {
         if(hoveredColumn != -1) {
@@ -185,9 +287,31 @@ public class BoardGUI extends Canvas implements MouseListener, MouseMotionListen
         JFrame frame = new JFrame();
         BoardGUI gameBoard = new BoardGUI();
 
+        // menu for starting a new game, which stops the agent if it's searching
+        JMenuBar menuBar = new JMenuBar();
+        JMenu gameMenu = new JMenu("Game");
+        JMenuItem newGameItem = new JMenuItem("New Game");
+        // getMenuShortcutKeyMaskEx() replaces this from Java 10, but the game still builds for Java 8
+        @SuppressWarnings("deprecation")
+        int shortcutMask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
+        newGameItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_N, shortcutMask));
+        newGameItem.addActionListener(e -> gameBoard.newGame());
+        gameMenu.add(newGameItem);
+        menuBar.add(gameMenu);
+
+        // stop the agent's search when the window is closed
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                gameBoard.shutdown();
+            }
+        });
+
         // add gameBoard to frame and set frame properties
+        frame.setJMenuBar(menuBar);
         frame.add(gameBoard);
-        frame.setSize(BoardGUI.WIDTH, BoardGUI.HEIGHT + BoardGUI.HEADER_HEIGHT);
+        gameBoard.setPreferredSize(new Dimension(BoardGUI.WIDTH, BoardGUI.HEIGHT + BoardGUI.HEADER_HEIGHT));
+        frame.pack();
         frame.setTitle("Connect Four");
         frame.setResizable(false);
         frame.setVisible(true);
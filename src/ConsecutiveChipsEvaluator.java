@@ -0,0 +1,35 @@
+/*
+    Evaluator which rates board states as more desirable when there
+    are high-valued sequences of consecutive chips of a color on the
+    board. This was MinimaxAgent's original evaluation function, and
+    requires the consecutive chips of both colors to be recalculated
+    for every board it evaluates
+*/
+public class ConsecutiveChipsEvaluator implements Evaluator {
+
+    // value of a sequence of 0, 1, 2... consecutive chips, up to one less than a win: {0, 10, 100, 1000} for 4
+    private static final int[] sequenceWeights = new int[Board.CONNECT];
+    static {
+        for(int key = 1; key < sequenceWeights.length; key++) {
+            sequenceWeights[key] = key == 1 ? 10 : 10 * sequenceWeights[key - 1];
+        }
+    }
+
+    public int evaluate(Board board, char color, char otherColor) {
+        int reward = 0;
+
+        // reward should be incremented (or decremented for opponent states) by 10^key * n, where
+        // key is the length of the sequence of consecutive chips and n is the number of sequences
+        // of that length which exist
+
+        for(int key = 1; key < Board.CONNECT; key++) {
+            reward += sequenceWeights[key] * board.getConsecutiveChips(color, key);
+        }
+
+        for(int key = 1; key < Board.CONNECT; key++) {
+            reward -= sequenceWeights[key] * board.getConsecutiveChips(otherColor, key);
+        }
+
+        return reward;
+    }
+}
@@ -0,0 +1,134 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+    Read-only table of the exact scores of positions near the end of
+    the game, written by EndgameDatabaseBuilder. Like OpeningBook, the
+    file is memory-mapped rather than read
+
+    File layout (big-endian):
+        int magic, int version, int max empty spaces, int number of slots n
+        n longs: canonical position key stored in each slot, or 0 if it's empty
+        n bytes: score of the position in each slot for the color to move (see Solver)
+
+    n is a power of two, and a key is stored in the first empty slot at
+    or after slot(key), so a probe reads the slots from there until it
+    finds the key or an empty slot. No position key is 0, since every
+    key has a bit set in each column. Positions are assumed to come from
+    games where red moved first, so the color to move is known from the
+    number of chips
+*/
+public class EndgameDatabase {
+
+    public static final int MAGIC = 0x43344547; // "C4EG"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    // file loaded by BoardGUI if it exists, which like opening books depends on the board size
+    public static final String DEFAULT_FILE = Board.WIDTH == 7 && Board.HEIGHT == 6 && Board.CONNECT == 4
+            ? "endgame.db" : "endgame-" + Board.WIDTH + "x" + Board.HEIGHT + "-" + Board.CONNECT + ".db";
+
+    public static final int NOT_FOUND = Integer.MIN_VALUE; // returned by getScore() for positions not in the database
+
+    private static final int MAX_PLY = Board.WIDTH * Board.HEIGHT;
+
+    private final int maxEmpty; // positions with up to this many empty spaces were stored
+    private final int mask; // number of slots - 1
+    private final LongBuffer keys;
+    private final ByteBuffer scores;
+
+    private EndgameDatabase(MappedByteBuffer buffer) throws IOException {
+        if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an endgame database");
+        }
+        maxEmpty = buffer.getInt(8);
+        int slots = buffer.getInt(12);
+        mask = slots - 1;
+
+        buffer.position(HEADER_BYTES);
+        keys = buffer.slice().asLongBuffer();
+        buffer.position(HEADER_BYTES + slots * 8);
+        scores = buffer.slice();
+    }
+
+    // memory-maps the database stored at "path"
+    public static EndgameDatabase open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new EndgameDatabase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // returns the slot a probe for "key" starts at in a table with "mask" + 1 slots
+    static int slot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    // returns true if "board" has few enough empty spaces to be in the database
+    public boolean covers(Board board) {
+        return MAX_PLY - board.getChipsInPlay() <= maxEmpty;
+    }
+
+    // returns score of "board" for the color to move, or NOT_FOUND if the board isn't in the database
+    public int getScore(Board board) {
+        if(!covers(board)) {
+            return NOT_FOUND;
+        }
+
+        long key = board.getPositionKey();
+        key = Math.min(key, Board.mirrorKey(key));
+        for(int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long stored = keys.get(i);
+            if(stored == key) {
+                return scores.get(i);
+            }
+            if(stored == 0) {
+                return NOT_FOUND;
+            }
+        }
+    }
+
+    // returns best column for the color to move in "board", found from the scores of the positions after
+    // each move, or -1 if they aren't all in the database... "board" is restored before returning
+    public int getBestMove(Board board) {
+        if(!covers(board) || board.getWinner() != null || board.isTie()) {
+            return -1;
+        }
+        char color = board.getChipsInPlay() % 2 == 0 ? 'r' : 'b';
+
+        int bestColumn = -1;
+        int bestScore = Integer.MIN_VALUE;
+        for(int c = 0; c < Board.WIDTH; c++) {
+            if(!board.canAdd(c)) {
+                continue;
+            }
+            if(board.isWinningMove(c, color)) {
+                return c;
+            }
+
+            board.play(c, color);
+            int score = board.isTie() ? 0 : getScore(board);
+            board.undo();
+            if(score == NOT_FOUND) {
+                return -1;
+            }
+            if(-score > bestScore) {
+                bestScore = -score;
+                bestColumn = c;
+            }
+        }
+        return bestColumn;
+    }
+
+    public int getMaxEmpty() {
+        return maxEmpty;
+    }
+
+    public int getSlots() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,172 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.stream.IntStream;
+
+/*
+    Offline tool which finds every unfinished position with up to a given
+    number of empty spaces that can be reached from a set of seed positions,
+    and writes their exact scores to an EndgameDatabase file. Scores are
+    found by retrograde analysis rather than search: positions are scored
+    from the fullest boards back, each from the scores of the positions
+    after its moves, which have already been scored. Mirrored positions
+    are only stored once, and the positions with the same number of chips
+    are scored in parallel
+
+    Seeds are read from a file with one string of moves per line (column
+    letters starting with red, or "-" for the empty board). Every position
+    between a seed and the end of the game is visited, so seeds should be
+    close enough to the end for that to be possible
+
+    Usage: java EndgameDatabaseBuilder <max empty> <seed file> [file]
+*/
+public class EndgameDatabaseBuilder {
+
+    private static final int MAX_PLY = Board.WIDTH * Board.HEIGHT;
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2) {
+            System.out.println("Usage: java EndgameDatabaseBuilder <max empty> <seed file> [file]");
+            return;
+        }
+        int maxEmpty = Math.min(Integer.parseInt(args[0]), MAX_PLY);
+        String file = args.length > 2 ? args[2] : EndgameDatabase.DEFAULT_FILE;
+        int minChips = MAX_PLY - maxEmpty; // chips in the emptiest positions stored
+
+        // canonical keys of the positions to store, by number of chips
+        ArrayList<HashSet<Long>> levels = new ArrayList<>();
+        for(int chips = 0; chips < MAX_PLY; chips++) {
+            levels.add(new HashSet<>());
+        }
+        HashSet<Long> visited = new HashSet<>(); // positions with too many empty spaces which have been visited
+
+        long time = System.nanoTime();
+        for(String line : Files.readAllLines(Paths.get(args[1]))) {
+            String moves = line.trim();
+            if(moves.isEmpty()) {
+                continue;
+            }
+            if(moves.equals("-")) {
+                moves = "";
+            }
+            Board board = Board.fromMoves(moves);
+            collect(board, moves.length() % 2 == 0 ? 'r' : 'b', minChips, levels, visited);
+        }
+        visited = null;
+
+        // the scores of each level are found from those of the level after it
+        long[][] keys = new long[MAX_PLY + 1][0];
+        byte[][] scores = new byte[MAX_PLY + 1][0];
+        int total = 0;
+        for(int chips = MAX_PLY - 1; chips >= Math.max(minChips, 0); chips--) {
+            keys[chips] = toSortedArray(levels.get(chips));
+            levels.set(chips, null);
+            scores[chips] = new byte[keys[chips].length];
+            total += keys[chips].length;
+
+            final int level = chips;
+            IntStream.range(0, keys[chips].length).parallel().forEach(i ->
+                    scores[level][i] = (byte) score(keys[level][i], level, keys[level + 1], scores[level + 1]));
+
+            System.out.printf("%d chips: %d positions (%.1f s)%n", chips, keys[chips].length,
+                    (System.nanoTime() - time) / 1000000000.0);
+        }
+
+        // at most half of the slots are used, so probes for missing positions end quickly
+        int slots = Integer.highestOneBit(Math.max(1, 2 * total - 1)) << 1;
+        long[] table = new long[slots];
+        byte[] tableScores = new byte[slots];
+        for(int chips = 0; chips < MAX_PLY; chips++) {
+            for(int i = 0; i < keys[chips].length; i++) {
+                int slot = EndgameDatabase.slot(keys[chips][i], slots - 1);
+                while(table[slot] != 0) {
+                    slot = (slot + 1) & (slots - 1);
+                }
+                table[slot] = keys[chips][i];
+                tableScores[slot] = scores[chips][i];
+            }
+        }
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(EndgameDatabase.MAGIC);
+            out.writeInt(EndgameDatabase.VERSION);
+            out.writeInt(maxEmpty);
+            out.writeInt(slots);
+            for(long key : table) {
+                out.writeLong(key);
+            }
+            out.write(tableScores);
+        }
+
+        System.out.printf("Wrote %d positions to %s in %.1f s%n", total, file, (System.nanoTime() - time) / 1000000000.0);
+    }
+
+    // add every unfinished position with at least "minChips" chips reachable from "board" to "levels"
+    private static void collect(Board board, char color, int minChips, ArrayList<HashSet<Long>> levels,
+                                HashSet<Long> visited) {
+        if(board.getWinner() != null || board.isTie()) {
+            return;
+        }
+
+        // a position which has already been reached has already had its successors collected
+        long key = board.getPositionKey();
+        long canonicalKey = Math.min(key, Board.mirrorKey(key));
+        int chips = board.getChipsInPlay();
+        if(!(chips >= minChips ? levels.get(chips) : visited).add(canonicalKey)) {
+            return;
+        }
+
+        char otherColor = color == 'r' ? 'b' : 'r';
+        for(int c = 0; c < Board.WIDTH; c++) {
+            if(board.play(c, color)) {
+                collect(board, otherColor, minChips, levels, visited);
+                board.undo();
+            }
+        }
+    }
+
+    // returns the score of the position with canonical key "key" and "chips" chips for the color to move,
+    // given the sorted keys and scores of the positions with one more chip
+    private static int score(long key, int chips, long[] nextKeys, byte[] nextScores) {
+        Board board = Board.fromPositionKey(key);
+        char color = chips % 2 == 0 ? 'r' : 'b';
+
+        int best = Integer.MIN_VALUE;
+        for(int c = 0; c < Board.WIDTH; c++) {
+            if(!board.canAdd(c)) {
+                continue;
+            }
+
+            int score;
+            if(board.isWinningMove(c, color)) {
+                score = (MAX_PLY + 1 - chips) / 2;
+            }
+            else if(chips + 1 == MAX_PLY) {
+                score = 0;
+            }
+            else {
+                // the position after the move is unfinished, so it was collected too
+                long next = Board.playKey(key, c, color == 'r');
+                score = -nextScores[Arrays.binarySearch(nextKeys, Math.min(next, Board.mirrorKey(next)))];
+            }
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    private static long[] toSortedArray(HashSet<Long> keys) {
+        long[] array = new long[keys.size()];
+        int index = 0;
+        for(long key : keys) {
+            array[index++] = key;
+        }
+        Arrays.sort(array);
+        return array;
+    }
+}
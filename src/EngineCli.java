@@ -0,0 +1,175 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/*
+    Command line tools for checking move generation and measuring
+    the raw speed of the engine
+
+    Usage:
+        java EngineCli perft <moves> <depth>
+            counts the move sequences of length 1 to depth from the position
+            reached by "moves" (column letters starting with red, or "-" for
+            the empty board), timing each depth separately
+        java EngineCli bench [depth]
+            searches every position in BenchmarkPositions with MinimaxAgent
+            and prints the total states expanded, states per second and
+            search statistics (see SearchStats)
+        java EngineCli solve <moves>
+            solves the position reached by "moves" with SolverAgent and prints
+            its best move, score and the number of chips until the game ends
+        java EngineCli records <file>
+            scans a file written by GameRecordWriter and prints the number of
+            games, their results and average length
+*/
+public class EngineCli {
+
+    private static final int DEFAULT_BENCH_DEPTH = 8;
+
+    // transposition table size used by bench, fixed so that its state counts are reproducible
+    private static final long BENCH_TABLE_MEMORY = 16L * 1024 * 1024;
+
+    private static long nodes; // positions visited by the current perft
+
+    public static void main(String[] args) throws IOException {
+        if(args.length >= 3 && args[0].equals("perft")) {
+            String moves = args[1].equals("-") ? "" : args[1];
+            perft(moves, Integer.parseInt(args[2]));
+        }
+        else if(args.length >= 1 && args[0].equals("bench")) {
+            bench(args.length >= 2 ? Integer.parseInt(args[1]) : DEFAULT_BENCH_DEPTH);
+        }
+        else if(args.length >= 2 && args[0].equals("records")) {
+            records(args[1]);
+        }
+        else if(args.length >= 2 && args[0].equals("solve")) {
+            solve(args[1].equals("-") ? "" : args[1]);
+        }
+        else {
+            System.out.println("Usage: java EngineCli perft <moves> <depth>");
+            System.out.println("       java EngineCli bench [depth]");
+            System.out.println("       java EngineCli solve <moves>");
+            System.out.println("       java EngineCli records <file>");
+        }
+    }
+
+    // prints the perft count for every depth up to "maxDepth"
+    private static void perft(String moves, int maxDepth) {
+        Board board = Board.fromMoves(moves);
+        char color = moves.length() % 2 == 0 ? 'r' : 'b';
+
+        System.out.println(board);
+        System.out.println("depth\tleaves\ttime (s)\tnodes/s");
+
+        for(int depth = 1; depth <= maxDepth; depth++) {
+            nodes = 0;
+            long time = System.nanoTime();
+            long leaves = countLeaves(board, color, depth);
+            double elapsedTime = (System.nanoTime() - time) / 1000000000.0;
+
+            System.out.printf("%d\t%d\t%.3f\t%.0f%n", depth, leaves, elapsedTime, nodes / elapsedTime);
+        }
+    }
+
+    // returns number of sequences of "depth" moves that can be played from "board"... a game
+    // that ends earlier has no further moves, so it isn't counted
+    private static long countLeaves(Board board, char color, int depth) {
+        nodes++;
+        if(depth == 0) {
+            return 1;
+        }
+        if(board.getWinner() != null || board.isTie()) {
+            return 0;
+        }
+
+        long leaves = 0;
+        ArrayList<Character> actions = board.getLegalActions();
+        for(char action : actions) {
+            board.add(action, color);
+            leaves += countLeaves(board, color == 'r' ? 'b' : 'r', depth - 1);
+            board.undo();
+        }
+        return leaves;
+    }
+
+    // searches every benchmark position to "depth" with an empty transposition table
+    private static void bench(int depth) {
+        Board[] boards = BenchmarkPositions.boards();
+        TranspositionTable table = new TranspositionTable(BENCH_TABLE_MEMORY, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+
+        SearchMonitor monitor = SearchMonitor.getInstance();
+        monitor.reset();
+
+        long states = 0;
+        long time = System.nanoTime();
+        for(int i = 0; i < boards.length; i++) {
+            table.clear();
+            MinimaxAgent agent = new MinimaxAgent(boards[i], BenchmarkPositions.colorToMove(i), depth, table);
+            char action = agent.getAction();
+            states += agent.getCount();
+
+            System.out.printf("%-14s %c %10d%n", BenchmarkPositions.MOVES[i].isEmpty() ? "-" : BenchmarkPositions.MOVES[i],
+                    action, agent.getCount());
+        }
+        double elapsedTime = (System.nanoTime() - time) / 1000000000.0;
+
+        System.out.println();
+        System.out.println("Depth: " + depth);
+        System.out.println("States Expanded: " + states);
+        System.out.printf("Elapsed time: %.3f%n", elapsedTime);
+        System.out.printf("States/s: %.0f%n", states / elapsedTime);
+        System.out.printf("Beta cutoff rate: %.1f%%%n", 100 * monitor.getBetaCutoffRate());
+        System.out.printf("First move cutoffs: %.1f%%%n", 100 * monitor.getFirstMoveCutoffRatio());
+        System.out.printf("Children skipped: %.1f%%%n", 100 * monitor.getSkippedChildRate());
+        System.out.printf("TT hit rate: %.1f%%%n", 100 * monitor.getTableHitRate());
+    }
+
+    // prints the best move of the position reached by "moves" when both colors play perfectly
+    private static void solve(String moves) {
+        Board board = Board.fromMoves(moves);
+        char color = moves.length() % 2 == 0 ? 'r' : 'b';
+        System.out.println(board);
+        if(board.getWinner() != null || board.isTie()) {
+            System.out.println("The game is over");
+            return;
+        }
+
+        SolverAgent agent = new SolverAgent(board, color);
+        long time = System.nanoTime();
+        char action = agent.getAction();
+        double elapsedTime = (System.nanoTime() - time) / 1000000000.0;
+
+        int score = agent.getScore();
+        String result = score > 0 ? "win" : score < 0 ? "loss" : "draw";
+        System.out.println("Best move: " + action);
+        System.out.println("Score: " + score + " (" + result + " for " + color + " in " + agent.getMovesToEnd() + " chips)");
+        System.out.println("States Expanded: " + agent.getCount());
+        System.out.printf("Elapsed time: %.3f%n", elapsedTime);
+    }
+
+    // prints a summary of the games in a game record file, reusing one record for every game
+    private static void records(String file) throws IOException {
+        long games = 0;
+        long moves = 0;
+        long[] results = new long[4]; // unfinished, red wins, black wins, ties
+        long time = System.nanoTime();
+
+        GameRecord record = new GameRecord();
+        try(GameRecordReader reader = new GameRecordReader(new File(file))) {
+            while(reader.next(record)) {
+                games++;
+                moves += record.getMoveCount();
+                results[GameRecordWriter.resultCode(record.getResult())]++;
+            }
+        }
+        double elapsedTime = (System.nanoTime() - time) / 1000000000.0;
+
+        System.out.println("Games: " + games);
+        System.out.println("Red wins: " + results[1]);
+        System.out.println("Black wins: " + results[2]);
+        System.out.println("Ties: " + results[3]);
+        System.out.println("Unfinished: " + results[0]);
+        System.out.printf("Average moves: %.1f%n", games == 0 ? 0 : (double) moves / games);
+        System.out.printf("Elapsed time: %.3f%n", elapsedTime);
+    }
+}
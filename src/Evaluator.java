@@ -0,0 +1,11 @@
+/*
+    An Evaluator rates board states that have no winner for
+    MinimaxAgent. Values are in terms of "color", and rating the
+    same board for the other color must give the negated value,
+    because searched values are stored in terms of the color to move
+*/
+public interface Evaluator {
+
+    // returns value of "board" for "color", where higher values are better for "color"
+    int evaluate(Board board, char color, char otherColor);
+}
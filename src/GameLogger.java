@@ -0,0 +1,119 @@
+import java.io.PrintWriter;
+
+/*
+    Writes the progress of a game loop (TwoAgentGame, OnePlayerGame)
+
+    VERBOSE prints the board after every move along with the agent's
+    time and states expanded, as the game loops always have. STRUCTURED
+    prints one line of key=value pairs per move instead, which is
+    cheaper to write and easy to parse when many games are logged, and
+    QUIET prints only the result
+
+    Every entry is built in one reused StringBuilder and written with
+    one call, so logging a move doesn't create any strings
+*/
+public class GameLogger {
+
+    public enum Mode { VERBOSE, STRUCTURED, QUIET }
+
+    private final Mode mode;
+    private final PrintWriter out;
+    private final StringBuilder entry = new StringBuilder(256);
+    private char[] chars = new char[256]; // characters of "entry" as they're written
+
+    // logs to standard output
+    public GameLogger(Mode mode) {
+        this(mode, new PrintWriter(System.out));
+    }
+
+    public GameLogger(Mode mode, PrintWriter out) {
+        this.mode = mode;
+        this.out = out;
+    }
+
+    // logs the board after a move by a player, whose time isn't measured
+    public void playerMove(Board board, char color, char column) {
+        if(mode == Mode.VERBOSE) {
+            entry.setLength(0);
+            board.appendTo(entry);
+            entry.append('\n');
+            write();
+        }
+        else if(mode == Mode.STRUCTURED) {
+            entry.setLength(0);
+            appendMove(board, color, column);
+            entry.append('\n');
+            write();
+        }
+    }
+
+    // logs a move by an agent which took "elapsedTime" nanoseconds and expanded "states" states...
+    // "heading" is printed above the board if it isn't null
+    public void agentMove(String heading, Board board, char color, char column, double elapsedTime, long states) {
+        if(mode == Mode.VERBOSE) {
+            entry.setLength(0);
+            if(heading != null) {
+                entry.append(heading).append('\n');
+            }
+            board.appendTo(entry);
+            entry.append('\n');
+            entry.append("Elapsed time: ").append(elapsedTime / 1000000000).append('\n');
+            entry.append("States Expanded: ").append(states).append('\n');
+            entry.append('\n');
+            write();
+        }
+        else if(mode == Mode.STRUCTURED) {
+            entry.setLength(0);
+            appendMove(board, color, column);
+            entry.append(" seconds=").append(elapsedTime / 1000000000);
+            entry.append(" states=").append(states).append('\n');
+            write();
+        }
+    }
+
+    // logs the result of the finished game on "board"... "blankLine" adds an empty line after it
+    public void result(Board board, boolean blankLine) {
+        entry.setLength(0);
+        if(mode == Mode.STRUCTURED) {
+            entry.append("result winner=").append(board.isTie() ? "tie" : board.getWinner());
+            entry.append(" moves=").append(board.getChipsInPlay()).append('\n');
+        }
+        else {
+            if(board.isTie()) {
+                entry.append("Tie Game!");
+            }
+            else if(board.getWinner().equals("r")) {
+                entry.append("Red wins!");
+            }
+            else {
+                entry.append("Black wins!");
+            }
+            entry.append('\n');
+            if(blankLine) {
+                entry.append('\n');
+            }
+        }
+        write();
+    }
+
+    private void appendMove(Board board, char color, char column) {
+        entry.append("move ply=").append(board.getChipsInPlay());
+        entry.append(" color=").append(color);
+        entry.append(" column=").append(column);
+    }
+
+    // writes "entry" through the reused character buffer
+    private void write() {
+        int length = entry.length();
+        if(chars.length < length) {
+            chars = new char[Math.max(length, 2 * chars.length)];
+        }
+        entry.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+        out.flush();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+    A game stored as the key of the position it started from (see
+    Board.getPositionKey()) and the columns played after it, in the
+    format written by GameRecordWriter. Positions of the game can be
+    found from their keys without creating Board objects, and records
+    can be reused by GameRecordReader to read many games without
+    allocating new ones
+
+    Results are 'r' or 'b' for the winner, 't' for a tie, or 0 for a
+    game which was stopped before it ended
+*/
+public class GameRecord {
+
+    public static final int MAX_MOVES = Board.WIDTH * Board.HEIGHT;
+
+    private long startKey;
+    private char result;
+    private final byte[] moves = new byte[MAX_MOVES]; // column index of each move
+    private int moveCount;
+
+    // an empty game from the empty board
+    public GameRecord() {
+        startKey = Board.emptyPositionKey();
+    }
+
+    // a game from the board with "startKey", with no moves yet
+    public GameRecord(long startKey) {
+        this.startKey = startKey;
+    }
+
+    // empties the record, which then starts from the board with "startKey"
+    public void reset(long startKey) {
+        this.startKey = startKey;
+        result = 0;
+        moveCount = 0;
+    }
+
+    public void addMove(int columnIndex) {
+        if(moveCount == MAX_MOVES) {
+            throw new IllegalStateException("Game has more than " + MAX_MOVES + " moves");
+        }
+        moves[moveCount++] = (byte) columnIndex;
+    }
+
+    // returns the key of the position after "ply" moves, without creating a board
+    public long getPositionKey(int ply) {
+        long key = startKey;
+        boolean red = Board.chipsInKey(startKey) % 2 == 0;
+        for(int i = 0; i < ply; i++) {
+            key = Board.playKey(key, moves[i], red);
+            red = !red;
+        }
+        return key;
+    }
+
+    // returns the keys of every position of the game, starting with the start position
+    public long[] getPositionKeys() {
+        long[] keys = new long[moveCount + 1];
+        keys[0] = startKey;
+        boolean red = Board.chipsInKey(startKey) % 2 == 0;
+        for(int i = 0; i < moveCount; i++) {
+            keys[i + 1] = Board.playKey(keys[i], moves[i], red);
+            red = !red;
+        }
+        return keys;
+    }
+
+    // returns a board of the position after "ply" moves
+    public Board toBoard(int ply) {
+        Board board = Board.fromPositionKey(startKey);
+        char color = board.getChipsInPlay() % 2 == 0 ? 'r' : 'b';
+        for(int i = 0; i < ply; i++) {
+            board.play(moves[i], color);
+            color = color == 'r' ? 'b' : 'r';
+        }
+        return board;
+    }
+
+    // returns the moves as column letters
+    public String getMoveString() {
+        StringBuilder letters = new StringBuilder(moveCount);
+        for(int i = 0; i < moveCount; i++) {
+            letters.append(Board.letters[moves[i]]);
+        }
+        return letters.toString();
+    }
+
+    public long getStartKey() {
+        return startKey;
+    }
+
+    public char getResult() {
+        return result;
+    }
+
+    public void setResult(char result) {
+        this.result = result;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    // used by GameRecordReader to fill the record
+    byte[] moveArray() {
+        return moves;
+    }
+
+    void setMoveCount(int moveCount) {
+        this.moveCount = moveCount;
+    }
+}
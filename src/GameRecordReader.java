@@ -0,0 +1,68 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/*
+    Reads the games of a file written by GameRecordWriter one at a time,
+    so files of any size can be scanned in constant memory. next(record)
+    fills a record which can be reused for every game
+*/
+public class GameRecordReader implements Closeable {
+
+    private static final char[] results = {0, 'r', 'b', 't'}; // result of each result code
+
+    private final DataInputStream in;
+    private final byte[] packed = new byte[(GameRecord.MAX_MOVES + 1) / 2];
+
+    public GameRecordReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        try {
+            if(in.readInt() != GameRecordWriter.MAGIC || in.readInt() != GameRecordWriter.VERSION) {
+                throw new IOException("Not a game record file: " + file);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    // reads the next game into "record", returning false if there are no more games
+    public boolean next(GameRecord record) throws IOException {
+        long startKey;
+        try {
+            startKey = in.readLong();
+        } catch (EOFException e) {
+            return false;
+        }
+
+        int resultCode = in.readUnsignedByte();
+        int moveCount = in.readUnsignedByte();
+        if(resultCode >= results.length || moveCount > GameRecord.MAX_MOVES) {
+            throw new IOException("Corrupt game record");
+        }
+        in.readFully(packed, 0, (moveCount + 1) / 2);
+
+        record.reset(startKey);
+        record.setResult(results[resultCode]);
+        byte[] moves = record.moveArray();
+        for(int i = 0; i < moveCount; i++) {
+            moves[i] = (byte) (i % 2 == 0 ? (packed[i / 2] >> 4) & 0xF : packed[i / 2] & 0xF);
+        }
+        record.setMoveCount(moveCount);
+        return true;
+    }
+
+    // reads the next game into a new record, or returns null if there are no more games
+    public GameRecord next() throws IOException {
+        GameRecord record = new GameRecord();
+        return next(record) ? record : null;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/*
+    Appends GameRecords to a binary file which can be read back with
+    GameRecordReader. Games are written through a buffer, so writing one
+    costs about as much as copying its bytes, and several threads can
+    write to the same writer
+
+    File layout (big-endian):
+        int magic, int version
+        then for every game:
+            long key of the start position
+            byte result: 0 if unfinished, 1 red won, 2 black won, 3 tie
+            byte number of moves n
+            (n + 1) / 2 bytes: two moves per byte, the first in the high 4 bits
+
+    A game of 42 moves takes 31 bytes
+*/
+public class GameRecordWriter implements Closeable {
+
+    public static final int MAGIC = 0x43344752; // "C4GR"
+    public static final int VERSION = 1;
+
+    private final DataOutputStream out;
+    private final byte[] packed = new byte[(GameRecord.MAX_MOVES + 1) / 2];
+    private long games; // number of games written by this writer
+
+    // opens "file" to append games to, starting a new file if it doesn't exist or is empty
+    public GameRecordWriter(File file) throws IOException {
+        boolean newFile = !file.exists() || file.length() == 0;
+        if(!newFile) {
+            checkHeader(file);
+        }
+
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 1 << 16));
+        if(newFile) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+    }
+
+    // throws an IOException if "file" isn't a game record file
+    private static void checkHeader(File file) throws IOException {
+        try(DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a game record file: " + file);
+            }
+        }
+    }
+
+    public synchronized void write(GameRecord game) throws IOException {
+        int moveCount = game.getMoveCount();
+        for(int i = 0; i < moveCount; i += 2) {
+            int second = i + 1 < moveCount ? game.getMove(i + 1) : 0;
+            packed[i / 2] = (byte) (game.getMove(i) << 4 | second);
+        }
+
+        out.writeLong(game.getStartKey());
+        out.writeByte(resultCode(game.getResult()));
+        out.writeByte(moveCount);
+        out.write(packed, 0, (moveCount + 1) / 2);
+        games++;
+    }
+
+    static int resultCode(char result) {
+        switch(result) {
+            case 'r':
+                return 1;
+            case 'b':
+                return 2;
+            case 't':
+                return 3;
+            default:
+                return 0;
+        }
+    }
+
+    public synchronized long getGames() {
+        return games;
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -1,36 +1,143 @@
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /*
     Agent object which uses a minimax algorithm with alpha-
     beta pruning (to a given depth) to generate actions in
-    getAction(). The evaluation function rates board states
-    as more desirable when there are high-valued sequences
-    of consecutive chips of the agent's color on the board
+    getAction(). The evaluation function scores wins and
+    losses, and uses an Evaluator to rate every other board
+    state (by default a WindowEvaluator)
+
+    The search plays and undoes moves on a single copy of the
+    board rather than creating a new board for every successor,
+    and stores the value of every searched position in a
+    transposition table so positions reached by a different
+    order of moves are not searched again
+
+    getAction(Duration) searches one ply deeper at a time until
+    the time budget runs out, trying the best move found so far
+    first, and returns the best move of the last completed search
+
+    When given a ForkJoinPool, the first move at the root is searched
+    on the calling thread and the remaining moves are then searched in
+    parallel, each on its own copy of the board, starting from the best
+    value found by any thread so far
+
+    Below the root, moves are ordered by the stored best move, then
+    killer moves (moves that caused a cutoff at the same depth), then
+    by history (how often a move into that space has caused a cutoff)
+    and finally by closeness to the center column
+
+    Before a position is searched, the spaces where each color could
+    complete a line are found from the bitboards: a color that can win
+    with its next chip is given that win without searching, one that
+    can't stop the other color from winning next is given the loss,
+    and otherwise only moves that don't let the other color win with
+    its next chip are searched (a forced block, if there is one, and
+    never the space below one of the other color's winning spaces).
+    At the root, a winning move is played right away
+
+    Positions and their mirror images share transposition table
+    entries, and in a symmetric position only the columns up to the
+    center are searched, since the rest mirror them
+
+    If an opening book has been set, positions found in it are
+    played from the book without searching. Likewise, if an endgame
+    database has been set, positions with few enough empty spaces to be
+    in it are played from it, and positions the search reaches which are
+    in it are given their exact value instead of being searched
+
+    startPondering() searches on a background thread while the other
+    color decides on its move: first the position after its predicted
+    reply (the best reply stored by the last search) and optionally the
+    positions after every other reply. The results are kept in the
+    transposition table, and if the reply that was played was searched
+    to the full depth its best move is returned without searching again
+
+    A search running on another thread can be stopped with cancel(), and
+    a SearchProgressListener can be set to follow the search as it runs.
+    Statistics of the last search are returned by getSearchStats(), and
+    every search is also added to the totals of the SearchMonitor
 */
 public class MinimaxAgent extends Agent {
 
     private int depth; // max depth
-    private final int MAX_BOARD_REWARD = 999999; // maximum value of a board state
-    private final int MIN_BOARD_REWARD = -999999; // minimum value of a board state
+    private static final int MAX_BOARD_REWARD = 999999; // maximum value of a board state
+    private static final int MIN_BOARD_REWARD = -999999; // minimum value of a board state
+
+    // values this close to MAX_BOARD_REWARD or MIN_BOARD_REWARD are wins or losses
+    private static final int MAX_PLY = Board.WIDTH * Board.HEIGHT;
+
+    // XORed into the hash of positions where black is to move
+    private static final long BLACK_TO_MOVE = 0x9E3779B97F4A7C15L;
+
+    // bitmask of the columns right of the center, which are skipped in symmetric positions
+    private static final int RIGHT_COLUMNS = ((1 << Board.WIDTH) - 1) & ~((1 << (Board.WIDTH / 2 + 1)) - 1);
+
+    private TranspositionTable table; // values of previously searched positions
+    private Evaluator evaluator = new WindowEvaluator(); // rates board states with no winner
+    private OpeningBook book; // solved opening positions, or null to always search
+    private EndgameDatabase endgame; // solved positions near the end of the game, or null
+
+    private int searchDepth; // depth the current search is limited to
+    private int rootValue; // value of the best move found by the last call to searchRoot()
+    private int completedDepth; // depth of the last search which wasn't stopped
+    private int completedValue; // value of the best move found by that search
+
+    private boolean timed; // true if the current search has a deadline
+    private long deadline; // value of System.nanoTime() at which a timed search stops
+    private volatile boolean stopped; // set when the current search should return immediately
+    private int nodesSinceCheck; // used to only read the clock once every 64 states
+
+    private ForkJoinPool pool; // pool used to search root moves in parallel, or null to search sequentially
+
+    private Thread ponderThread; // thread searching while the other color decides, or null
+    private final long[] ponderedHashes = new long[Board.WIDTH]; // hashes of positions pondered to full depth
+    private final int[] ponderedColumns = new int[Board.WIDTH]; // best column of each of those positions
+    private final int[] ponderedValues = new int[Board.WIDTH]; // value of each of those columns
+    private int ponderedCount; // number of positions pondered to full depth
+
+    private SearchStats stats = new SearchStats(); // statistics of the current search
+    private SearchStats lastStats = stats; // statistics of the last search returned by getAction()
+
+    private volatile SearchProgressListener progressListener; // told about the progress of searches, or null
+    private boolean reportingProgress; // false while pondering, which the listener isn't told about
+
+    // move ordering tables, which are shared by every thread of a parallel search since
+    // a lost or mixed update can only make the ordering slightly worse
+    private final int[][] killers = new int[MAX_PLY + 1][2]; // two most recent cutoff columns at each depth
+    private final long[][] history = new long[2][Board.WIDTH * Board.HEIGHT]; // cutoff score of each color and space
 
     // default constructor sets agent's chip color to black
     public MinimaxAgent(Board board, int depth) {
         super(board);
         this.depth = depth;
+        this.table = new TranspositionTable();
         setColor('b');
     }
 
     // argument can be supplied to choose agent's chip color
     public MinimaxAgent(Board board, char color, int depth) {
+        this(board, color, depth, new TranspositionTable());
+    }
+
+    // a transposition table can be supplied to share it with other agents
+    public MinimaxAgent(Board board, char color, int depth, TranspositionTable table) {
         super(board, color);
         this.depth = depth;
+        this.table = table;
         setColor(color);
     }
 
     // evaluation function to determine board state value for minimax function
     public int evalFn(Board board, char agentColor, char otherColor, int depth) {
-        int reward = 0;
-
         // if the agent wins in a given board state, return MAX_BOARD_REWARD, and
         // subtract the depth to make more immediate states have greater value
         if(board.getWinner() != null && board.getWinner().charAt(0) == agentColor) {
@@ -43,92 +150,858 @@ public class MinimaxAgent extends Agent {
             return MIN_BOARD_REWARD + depth;
         }
 
-        // reward should be incremented (or decremented for opponent states) by 10^key * n, where
-        // key is the length of the sequence of consecutive chips and n is the number of sequences
-        // of that length which exist
+        // otherwise the evaluator rates the unfinished game
+        return evaluator.evaluate(board, agentColor, otherColor);
+    }
 
-        for(int key = 1; key <= 3; key++) {
-            reward += Math.pow(10, key) * board.getConsecutiveChips().get(agentColor).get(key);
+    // uses minimax to determine the highest move (or "action") from all possible moves
+    public char getAction() {
+
+        stopPondering();
+        resetCount(); // reset count field
+        stats = new SearchStats();
+
+        int bookColumn = bookMove();
+        if(bookColumn >= 0) {
+            return Board.letters[bookColumn];
+        }
+        int endgameColumn = endgameMove();
+        if(endgameColumn >= 0) {
+            return Board.letters[endgameColumn];
         }
 
-        for(int key = 1; key <= 3; key++) {
-            reward -= Math.pow(10, key) * board.getConsecutiveChips().get(otherColor).get(key);
+        // a ponder hit: the position was already searched while the other color was deciding
+        long hash = getBoard().getHash();
+        for(int i = 0; i < ponderedCount; i++) {
+            if(ponderedHashes[i] == hash) {
+                ponderedCount = 0;
+                completedDepth = depth;
+                completedValue = ponderedValues[i];
+                finishStats();
+                return Board.letters[ponderedColumns[i]];
+            }
         }
+        ponderedCount = 0;
+
+        // search is done on a copy so the game board is never left mid-search
+        Board board = getBoard().deepCopy(getBoard());
 
-        return reward;
+        timed = false;
+        stopped = false;
+        reportingProgress = true;
+        searchDepth = depth;
+        resetMoveOrdering();
+        table.newSearch();
+
+        int column = searchRoot(board, -1);
+        if(column < 0) {
+            throw new CancellationException("Search was cancelled");
+        }
+        completedDepth = depth;
+        completedValue = rootValue;
+        finishStats();
+        return Board.letters[column];
     }
 
-    // uses minimax to determine the highest move (or "action") from all possible moves
-    public char getAction() {
+    // uses iterative deepening to find the best move that can be determined within "budget"
+    public char getAction(Duration budget) {
+        return getAction(budget, MAX_PLY);
+    }
 
+    // uses iterative deepening to find the best move that can be determined within "budget",
+    // searching no deeper than "maxDepth"
+    public char getAction(Duration budget, int maxDepth) {
+
+        stopPondering();
+        ponderedCount = 0;
         resetCount(); // reset count field
+        stats = new SearchStats();
+
+        int bookColumn = bookMove();
+        if(bookColumn >= 0) {
+            return Board.letters[bookColumn];
+        }
+        int endgameColumn = endgameMove();
+        if(endgameColumn >= 0) {
+            return Board.letters[endgameColumn];
+        }
+
+        Board board = getBoard().deepCopy(getBoard());
+
+        timed = true;
+        stopped = false;
+        reportingProgress = true;
+        deadline = System.nanoTime() + budget.toNanos();
+        resetMoveOrdering();
+        table.newSearch();
+
+        int bestColumn = -1; // best column of the deepest completed search
+        maxDepth = Math.min(maxDepth, MAX_PLY - board.getChipsInPlay()); // no deeper than the moves left in the game
+
+        for(searchDepth = 1; searchDepth <= maxDepth; searchDepth++) {
+            // the previous best column is searched first, so it's likely to raise alpha early
+            int column = searchRoot(board, bestColumn);
+            if(column < 0) {
+                break;
+            }
+            bestColumn = column;
+            completedDepth = searchDepth;
+            completedValue = rootValue;
+
+            // once a win or loss is certain, searching deeper can't change the outcome
+            if(Math.abs(rootValue) >= MAX_BOARD_REWARD - MAX_PLY) {
+                break;
+            }
+        }
+
+        timed = false;
+
+        // the first ply is never stopped by the deadline, only by cancel()
+        if(bestColumn < 0) {
+            throw new CancellationException("Search was cancelled");
+        }
+        finishStats();
+        return Board.letters[bestColumn];
+    }
+
+    // starts searching the positions after the other color's replies on a background thread, which
+    // runs until stopPondering() or getAction() is called... only the predicted reply is searched
+    // unless "allReplies" is true
+    public void startPondering(boolean allReplies) {
+        stopPondering();
+
+        Board board = getBoard().deepCopy(getBoard());
+        if(board.getWinner() != null || board.isTie()) {
+            return;
+        }
+
+        // the reply stored by the last search is predicted, followed by the others from the center out
+        int[] replies = new int[Board.WIDTH];
+        int replyCount = 0;
+        int predicted = storedMove(board, table.probe(tableKey(board, getOtherColor())));
+        if(predicted != TranspositionTable.NO_MOVE && board.canAdd(predicted)) {
+            replies[replyCount++] = predicted;
+        }
+        if(allReplies || replyCount == 0) {
+            for(int i = 0; i < Board.WIDTH; i++) {
+                int c = Board.WIDTH / 2 + (1 - 2 * (i % 2)) * (i + 1) / 2;
+                if(c != predicted && board.canAdd(c)) {
+                    replies[replyCount++] = c;
+                }
+            }
+            if(!allReplies) {
+                replyCount = 1;
+            }
+        }
+
+        timed = false;
+        stopped = false;
+        reportingProgress = false;
+        ponderedCount = 0;
+        stats = new SearchStats();
+        final int ponderCount = replyCount;
+        ponderThread = new Thread(() -> ponder(board, replies, ponderCount), "ponder");
+        ponderThread.setDaemon(true);
+        ponderThread.start();
+    }
+
+    // stops the search started by startPondering() and waits for it to finish
+    public void stopPondering() {
+        if(ponderThread == null) {
+            return;
+        }
 
-        // list of all allowed moves that can be taken
-        ArrayList<Character> actions = getBoard().getLegalActions();
-        // list of all possible board states one move ahead
-        ArrayList<Board> successors = getBoard().getSuccessors(getColor());
+        stopped = true;
+        try {
+            ponderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ponderThread = null;
+    }
+
+    public boolean isPondering() {
+        return ponderThread != null && ponderThread.isAlive();
+    }
+
+    // searches the position after each of the first "replyCount" replies to depth, one ply deeper
+    // at a time so that a stopped search still leaves useful entries in the transposition table
+    private void ponder(Board board, int[] replies, int replyCount) {
+        resetMoveOrdering();
+        for(int i = 0; i < replyCount && !stopped; i++) {
+            board.play(replies[i], getOtherColor());
+            if(board.getWinner() == null && !board.isTie()) {
+                int bestColumn = -1;
+                int maxDepth = Math.min(depth, MAX_PLY - board.getChipsInPlay());
+                for(searchDepth = 1; searchDepth <= maxDepth; searchDepth++) {
+                    int column = searchRoot(board, bestColumn);
+                    if(column < 0) {
+                        break;
+                    }
+                    bestColumn = column;
+                }
+
+                if(!stopped) {
+                    ponderedHashes[ponderedCount] = board.getHash();
+                    ponderedColumns[ponderedCount] = bestColumn;
+                    ponderedValues[ponderedCount] = rootValue;
+                    ponderedCount++;
+                }
+            }
+            board.undo();
+        }
+    }
+
+    // returns the opening book's move for the current board, or -1 if there is none
+    private int bookMove() {
+        if(book == null) {
+            return -1;
+        }
+        int column = book.getBestMove(getBoard(), getColor());
+        if(column >= 0) {
+            // the exact score becomes the value of a win or loss that many chips away, or 0 for a draw
+            int score = book.getScore(getBoard(), getColor());
+            completedDepth = 0;
+            completedValue = exactValue(score, getBoard().getChipsInPlay(), 0);
+            finishStats();
+        }
+        return column;
+    }
+
+    // returns the endgame database's move for the current board, or -1 if there is none
+    private int endgameMove() {
+        if(endgame == null || !endgame.covers(getBoard())) {
+            return -1;
+        }
+
+        // the database plays each move to score it, so it's given a copy
+        Board board = getBoard().deepCopy(getBoard());
+        int column = endgame.getBestMove(board);
+        if(column >= 0) {
+            // the score of the board is that of its best move, which the database has even if the board
+            // itself wasn't reached from the positions the database was built from
+            completedDepth = 0;
+            if(board.isWinningMove(column, getColor())) {
+                completedValue = MAX_BOARD_REWARD - 1;
+            }
+            else {
+                board.play(column, getColor());
+                int score = board.isTie() ? 0 : -endgame.getScore(board);
+                board.undo();
+                completedValue = exactValue(score, board.getChipsInPlay(), 0);
+            }
+            finishStats();
+        }
+        return column;
+    }
+
+    // returns the value for the color to move of a position at "depth" with "chips" chips, given its exact
+    // "score" (see Solver)... the score becomes the value of a win or loss that many chips away, or 0 for a draw
+    private static int exactValue(int score, int chips, int depth) {
+        int end = depth + Solver.movesToEnd(score, chips);
+        return score > 0 ? MAX_BOARD_REWARD - end : score < 0 ? MIN_BOARD_REWARD + end : 0;
+    }
+
+    // searches every column to searchDepth starting with "firstColumn" (or -1 for none)
+    // and returns the best one, or -1 if the search was stopped before it finished
+    private int searchRoot(Board board, int firstColumn) {
+        long wins = board.getWinningMoves(getColor());
+        if(wins != 0) {
+            rootValue = MAX_BOARD_REWARD - 1;
+            return Integer.numberOfTrailingZeros(Board.columnsOf(wins));
+        }
+
+        // columns which let the other color win are skipped, unless they all do
+        long nonLosing = board.getNonLosingSpaces(getColor());
+        int skipped = nonLosing != 0 ? ~Board.columnsOf(nonLosing) : 0;
+
+        if(pool != null) {
+            return searchRootParallel(board, firstColumn, skipped);
+        }
 
         int bestValue = Integer.MIN_VALUE; // best value of all states evaluated
-        int bestIndex = 0; // index of best action that can be taken
+        int bestColumn = -1; // column index of best action that can be taken
+        boolean symmetric = board.isSymmetric();
+        SearchStats.Counters counters = new SearchStats.Counters();
+
+        // iterate through all columns where a chip can be added
+        for(int i = -1; i < Board.WIDTH; i++) {
+            int c = i < 0 ? firstColumn : i;
+            if((i >= 0 && c == firstColumn) || !board.canAdd(c) || (symmetric && c > Board.WIDTH / 2)
+                    || (skipped & (1 << c)) != 0) {
+                continue;
+            }
 
-        // iterate through all successor states
-        for(int i = 0; i < successors.size(); i++) {
+            counters.addNode(1); // increment number of states expanded
 
-            incrementCount(); // increment number of states expanded
+            // calculate minimum value of the successor state in terms of the opponent... after the
+            // first column, the best value so far is alpha, so a worse column is only bounded
+            board.play(c, getColor());
+            int val = minValue(board, getOtherColor(), 1, bestValue, Integer.MAX_VALUE, counters);
+            board.undo();
+            addCounters(counters);
 
-            // calculate minimum value of the successor states in terms of the opponent
-            int val = minValue(successors.get(i), getOtherColor(), 1, Integer.MIN_VALUE, Integer.MAX_VALUE);
+            if(stopped) {
+                return -1;
+            }
 
             // check if val is greater than best value
             if(bestValue < val) {
                 bestValue = val;
-                bestIndex = i;
+                bestColumn = c;
             }
+            reportProgress(bestColumn, bestValue);
         }
 
-        return actions.get(bestIndex);
+        rootValue = bestValue;
+        return bestColumn;
+    }
+
+    // parallel version of searchRoot(), which doesn't search the columns in "skipped"
+    private int searchRootParallel(Board board, int firstColumn, int skipped) {
+        // order in which columns are searched, with firstColumn (if legal) first
+        int[] order = new int[Board.WIDTH];
+        int moves = 0;
+        int lastColumn = board.isSymmetric() ? Board.WIDTH / 2 : Board.WIDTH - 1; // mirror columns are skipped
+        if(board.canAdd(firstColumn) && firstColumn <= lastColumn && (skipped & (1 << firstColumn)) == 0) {
+            order[moves++] = firstColumn;
+        }
+        for(int c = 0; c <= lastColumn; c++) {
+            if(c != firstColumn && board.canAdd(c) && (skipped & (1 << c)) == 0) {
+                order[moves++] = c;
+            }
+        }
+
+        // the first column is searched with a full window to give the other threads a bound
+        SearchStats.Counters firstCounters = new SearchStats.Counters();
+        firstCounters.addNode(1);
+        board.play(order[0], getColor());
+        int firstValue = minValue(board, getOtherColor(), 1, Integer.MIN_VALUE, Integer.MAX_VALUE, firstCounters);
+        board.undo();
+        addCounters(firstCounters);
+        if(stopped) {
+            return -1;
+        }
+
+        AtomicInteger alpha = new AtomicInteger(firstValue); // best value found by any thread
+        int[] values = new int[moves]; // value returned for each column in order
+        int[] alphas = new int[moves]; // alpha each column was searched with
+        values[0] = firstValue;
+        alphas[0] = Integer.MIN_VALUE;
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for(int i = 1; i < moves; i++) {
+            final int index = i;
+            tasks.add(() -> {
+                // each task counts into its own counters, which are added to the statistics when it ends
+                Board copy = board.deepCopy(board);
+                SearchStats.Counters counters = new SearchStats.Counters();
+                counters.addNode(1);
+                copy.play(order[index], getColor());
+
+                int a = alpha.get();
+                int val = minValue(copy, getOtherColor(), 1, a, Integer.MAX_VALUE, counters);
+                addCounters(counters);
+                if(val > a) {
+                    alpha.accumulateAndGet(val, Math::max);
+                }
+                values[index] = val;
+                alphas[index] = a;
+                return val;
+            });
+        }
+
+        try {
+            for(Future<Integer> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        if(stopped) {
+            return -1;
+        }
+
+        // a value no greater than the alpha it was searched with is only an upper bound, so
+        // only values above their alpha are compared, keeping the earliest column on a tie
+        int bestValue = Integer.MIN_VALUE;
+        int bestColumn = -1;
+        for(int i = 0; i < moves; i++) {
+            if(values[i] > alphas[i] && bestValue < values[i]) {
+                bestValue = values[i];
+                bestColumn = order[i];
+            }
+        }
+        reportProgress(bestColumn, bestValue);
+
+        rootValue = bestValue;
+        return bestColumn;
+    }
+
+    // adds the counts of part of the current search to its statistics and the agent's count, and resets them
+    private void addCounters(SearchStats.Counters counters) {
+        stats.add(counters);
+        addCount(counters.getNodes());
+        counters.reset();
+    }
+
+    // ends the statistics of the current search, which chose a move at completedDepth
+    private void finishStats() {
+        stats.finish(completedDepth);
+        lastStats = stats;
+        SearchMonitor.getInstance().record(stats);
+    }
+
+    // tells the progress listener, if there is one, about the best column found so far
+    private void reportProgress(int bestColumn, int bestValue) {
+        SearchProgressListener listener = progressListener;
+        if(listener != null && reportingProgress) {
+            listener.progress(searchDepth, getCount(), bestColumn, bestValue);
+        }
+    }
+
+    // stops a search running on another thread, whose getAction() then throws a
+    // CancellationException... has no effect on a search which hasn't started yet
+    public void cancel() {
+        stopped = true;
+    }
+
+    // returns true if the current search should stop, which is only checked
+    // after the first iteration so that a timed search always has a move
+    private boolean outOfTime() {
+        if(timed && !stopped && searchDepth > 1 && (++nodesSinceCheck & 63) == 0
+                && System.nanoTime() - deadline > 0) {
+            stopped = true;
+        }
+        return stopped;
     }
 
     public int minValue(Board board, char currentColor, int depth, int alpha, int beta) {
+        SearchStats.Counters counters = new SearchStats.Counters();
+        int value = minValue(board, currentColor, depth, alpha, beta, counters);
+        addCounters(counters);
+        return value;
+    }
+
+    // counts the states it expands into "counters", which belong to the calling thread
+    private int minValue(Board board, char currentColor, int depth, int alpha, int beta, SearchStats.Counters counters) {
         // if max depth reached or game has ended, simply return value of current board state
-        if(board.isTie() || board.getWinner() != null || depth == this.depth) {
+        if(board.isTie() || board.getWinner() != null || depth >= searchDepth) {
             return evalFn(board, getColor(), getOtherColor(), depth);
         }
+
+        if(outOfTime()) {
+            return 0;
+        }
+
+        // the opponent wins with its next chip, or loses to the agent's next chip if it can't block it
+        if(board.getWinningMoves(currentColor) != 0) {
+            return MIN_BOARD_REWARD + depth + 1;
+        }
+        long nonLosing = board.getNonLosingSpaces(currentColor);
+        if(nonLosing == 0) {
+            return MAX_BOARD_REWARD - depth - 2;
+        }
+
+        // positions in the endgame database have an exact value for the opponent
+        if(endgame != null && endgame.covers(board)) {
+            int score = endgame.getScore(board);
+            if(score != EndgameDatabase.NOT_FOUND) {
+                return -exactValue(score, board.getChipsInPlay(), depth);
+            }
+        }
+
+        // entries are stored in terms of the color to move, which is the opponent here,
+        // so a lower bound for the opponent is an upper bound for the agent
+        long key = tableKey(board, currentColor);
+        long entry = table.probe(key);
+        counters.addTableProbe(entry != 0);
+        if(entry != 0 && TranspositionTable.depth(entry) >= searchDepth - depth) {
+            int score = -fromTable(TranspositionTable.score(entry), depth);
+            int bound = TranspositionTable.bound(entry);
+            if(bound == TranspositionTable.EXACT) {
+                return score;
+            }
+            else if(bound == TranspositionTable.LOWER_BOUND) {
+                beta = Math.min(beta, score);
+            }
+            else {
+                alpha = Math.max(alpha, score);
+            }
+            if(beta <= alpha) {
+                return score;
+            }
+        }
+        int alphaSearched = alpha;
+        int betaSearched = beta;
+        int bestMove = TranspositionTable.NO_MOVE;
+
+        // the best move stored by a shallower search is tried first
+        int hashMove = storedMove(board, entry);
+
+        // bitmask of columns which have been searched, where columns mirroring others and columns which
+        // let the other color win count as searched
+        int tried = (board.isSymmetric() ? RIGHT_COLUMNS : 0) | ~Board.columnsOf(nonLosing);
+
         int v = Integer.MAX_VALUE;
+        int searched = 0; // number of moves searched
         // determine mininmum value of successor states
-        for(Board successor : board.getSuccessors(currentColor)) {
-            incrementCount(); // increment number of states expanded
+        while(true) {
+            int c = nextMove(board, currentColor, depth, hashMove, tried);
+            if(c < 0) {
+                break;
+            }
+            tried |= 1 << c;
+            if(searched++ == 0) {
+                counters.addInteriorNode();
+            }
+
+            counters.addNode(depth + 1); // increment number of states expanded
 
-            v = Math.min(v, maxValue(successor, oppositeColor(currentColor), depth + 1, alpha, beta));
+            board.play(c, currentColor);
+            int val = maxValue(board, oppositeColor(currentColor), depth + 1, alpha, beta, counters);
+            board.undo();
+
+            if(stopped) {
+                return 0;
+            }
+
+            if(val < v) {
+                v = val;
+                bestMove = c;
+            }
 
             // calculate beta and break if it's less than or equal to alpha
             beta = Math.min(v, beta);
             if(beta <= alpha) {
+                recordCutoff(board, currentColor, depth, c);
+                counters.addBetaCutoff(searched == 1);
                 break;
             }
         }
+
+        // legal moves which weren't searched were never played, let alone copied
+        counters.addSkippedChildren(Long.bitCount(board.getPlayableSpaces()) - searched);
+
+        int bound = TranspositionTable.EXACT;
+        if(v <= alphaSearched) {
+            bound = TranspositionTable.LOWER_BOUND;
+        }
+        else if(v >= betaSearched) {
+            bound = TranspositionTable.UPPER_BOUND;
+        }
+        table.store(key, toTable(-v, depth), searchDepth - depth, bound, canonicalMove(board, bestMove));
         return v;
     }
 
     public int maxValue(Board board, char currentColor, int depth, int alpha, int beta) {
+        SearchStats.Counters counters = new SearchStats.Counters();
+        int value = maxValue(board, currentColor, depth, alpha, beta, counters);
+        addCounters(counters);
+        return value;
+    }
+
+    // counts the states it expands into "counters", which belong to the calling thread
+    private int maxValue(Board board, char currentColor, int depth, int alpha, int beta, SearchStats.Counters counters) {
         // if max depth reached or game has ended, simply return value of current board state
-        if(board.isTie() || board.getWinner() != null || depth == this.depth) {
+        if(board.isTie() || board.getWinner() != null || depth >= searchDepth) {
             return evalFn(board, getColor(), getOtherColor(), depth);
         }
+
+        if(outOfTime()) {
+            return 0;
+        }
+
+        // the agent wins with its next chip, or loses to the opponent's next chip if it can't block it
+        if(board.getWinningMoves(currentColor) != 0) {
+            return MAX_BOARD_REWARD - depth - 1;
+        }
+        long nonLosing = board.getNonLosingSpaces(currentColor);
+        if(nonLosing == 0) {
+            return MIN_BOARD_REWARD + depth + 2;
+        }
+
+        // positions in the endgame database have an exact value
+        if(endgame != null && endgame.covers(board)) {
+            int score = endgame.getScore(board);
+            if(score != EndgameDatabase.NOT_FOUND) {
+                return exactValue(score, board.getChipsInPlay(), depth);
+            }
+        }
+
+        // use a stored value if this position was already searched at least as deep
+        long key = tableKey(board, currentColor);
+        long entry = table.probe(key);
+        counters.addTableProbe(entry != 0);
+        if(entry != 0 && TranspositionTable.depth(entry) >= searchDepth - depth) {
+            int score = fromTable(TranspositionTable.score(entry), depth);
+            int bound = TranspositionTable.bound(entry);
+            if(bound == TranspositionTable.EXACT) {
+                return score;
+            }
+            else if(bound == TranspositionTable.LOWER_BOUND) {
+                alpha = Math.max(alpha, score);
+            }
+            else {
+                beta = Math.min(beta, score);
+            }
+            if(beta <= alpha) {
+                return score;
+            }
+        }
+        int alphaSearched = alpha;
+        int betaSearched = beta;
+        int bestMove = TranspositionTable.NO_MOVE;
+
+        // the best move stored by a shallower search is tried first
+        int hashMove = storedMove(board, entry);
+
+        // bitmask of columns which have been searched, where columns mirroring others and columns which
+        // let the other color win count as searched
+        int tried = (board.isSymmetric() ? RIGHT_COLUMNS : 0) | ~Board.columnsOf(nonLosing);
+
         int v = Integer.MIN_VALUE;
+        int searched = 0; // number of moves searched
         // determine maximum value of successor states
-        for(Board successor : board.getSuccessors(currentColor)) {
-            incrementCount(); // increment number of states expanded
+        while(true) {
+            int c = nextMove(board, currentColor, depth, hashMove, tried);
+            if(c < 0) {
+                break;
+            }
+            tried |= 1 << c;
+            if(searched++ == 0) {
+                counters.addInteriorNode();
+            }
+
+            counters.addNode(depth + 1); // increment number of states expanded
 
-            v = Math.max(v, minValue(successor, oppositeColor(currentColor), depth + 1, alpha, beta));
+            board.play(c, currentColor);
+            int val = minValue(board, oppositeColor(currentColor), depth + 1, alpha, beta, counters);
+            board.undo();
+
+            if(stopped) {
+                return 0;
+            }
+
+            if(val > v) {
+                v = val;
+                bestMove = c;
+            }
 
             // calculate alpha and break if it's greater than beta
             alpha = Math.max(v, alpha);
             if(beta <= alpha) {
+                recordCutoff(board, currentColor, depth, c);
+                counters.addBetaCutoff(searched == 1);
                 break;
             }
         }
+
+        // legal moves which weren't searched were never played, let alone copied
+        counters.addSkippedChildren(Long.bitCount(board.getPlayableSpaces()) - searched);
+
+        int bound = TranspositionTable.EXACT;
+        if(v <= alphaSearched) {
+            bound = TranspositionTable.UPPER_BOUND;
+        }
+        else if(v >= betaSearched) {
+            bound = TranspositionTable.LOWER_BOUND;
+        }
+        table.store(key, toTable(v, depth), searchDepth - depth, bound, canonicalMove(board, bestMove));
         return v;
     }
 
+    // returns the legal column not in the "tried" bitmask which should be searched next, or -1 if there is none
+    private int nextMove(Board board, char currentColor, int depth, int hashMove, int tried) {
+        int colorIndex = currentColor == 'r' ? 0 : 1;
+        int bestColumn = -1;
+        long bestScore = Long.MIN_VALUE;
+        for(int c = 0; c < Board.WIDTH; c++) {
+            if((tried & (1 << c)) != 0 || !board.canAdd(c)) {
+                continue;
+            }
+
+            // history dominates the distance from the center, which only breaks ties
+            long score = history[colorIndex][c * Board.HEIGHT + board.getColumnHeight(c)] * Board.WIDTH
+                    + Board.WIDTH / 2 - Math.abs(c - Board.WIDTH / 2);
+            if(c == hashMove) {
+                score = Long.MAX_VALUE;
+            }
+            else if(c == killers[depth][0]) {
+                score = Long.MAX_VALUE - 2;
+            }
+            else if(c == killers[depth][1]) {
+                score = Long.MAX_VALUE - 3;
+            }
+
+            if(score > bestScore) {
+                bestScore = score;
+                bestColumn = c;
+            }
+        }
+        return bestColumn;
+    }
+
+    // record that playing "column" at "depth" caused a cutoff
+    private void recordCutoff(Board board, char currentColor, int depth, int column) {
+        if(killers[depth][0] != column) {
+            killers[depth][1] = killers[depth][0];
+            killers[depth][0] = column;
+        }
+
+        // the board has been restored, so the column height is where the chip was added
+        int remaining = searchDepth - depth;
+        history[currentColor == 'r' ? 0 : 1][column * Board.HEIGHT + board.getColumnHeight(column)] += remaining * remaining;
+    }
+
+    // clear killer moves, which are specific to a search, and halve history so that it
+    // favors recent searches and can't overflow
+    private void resetMoveOrdering() {
+        for(int[] columns : killers) {
+            columns[0] = TranspositionTable.NO_MOVE;
+            columns[1] = TranspositionTable.NO_MOVE;
+        }
+        for(long[] scores : history) {
+            for(int i = 0; i < scores.length; i++) {
+                scores[i] /= 2;
+            }
+        }
+    }
+
+    // returns key of a position in the transposition table, which is shared with its mirror image
+    // and depends on the color to move
+    private long tableKey(Board board, char currentColor) {
+        if(currentColor == 'b') {
+            return board.getCanonicalHash() ^ BLACK_TO_MOVE;
+        }
+        return board.getCanonicalHash();
+    }
+
+    // returns column stored in "entry" for "board", or NO_MOVE if there is no entry
+    private int storedMove(Board board, long entry) {
+        if(entry == 0) {
+            return TranspositionTable.NO_MOVE;
+        }
+        return canonicalMove(board, TranspositionTable.move(entry));
+    }
+
+    // columns are stored for the orientation of the canonical hash, so they're reversed for
+    // mirrored boards... reversing is its own inverse, so this converts in either direction
+    private int canonicalMove(Board board, int column) {
+        if(column == TranspositionTable.NO_MOVE || !board.isMirrored()) {
+            return column;
+        }
+        return Board.WIDTH - 1 - column;
+    }
+
+    // wins and losses are scored by distance from the root, so they are stored
+    // by distance from the position instead to be valid wherever it's reached
+    private int toTable(int score, int depth) {
+        if(score >= MAX_BOARD_REWARD - MAX_PLY) {
+            return score + depth;
+        }
+        else if(score <= MIN_BOARD_REWARD + MAX_PLY) {
+            return score - depth;
+        }
+        return score;
+    }
+
+    // reverses toTable() for a position "depth" moves from the root
+    private int fromTable(int score, int depth) {
+        if(score >= MAX_BOARD_REWARD - MAX_PLY) {
+            return score - depth;
+        }
+        else if(score <= MIN_BOARD_REWARD + MAX_PLY) {
+            return score + depth;
+        }
+        return score;
+    }
+
+    // returns depth of the search which chose the last move returned by getAction(), or 0 if
+    // the move came from the opening book or endgame database
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    // returns value of the last move returned by getAction() from the agent's point of view
+    public int getValue() {
+        return completedValue;
+    }
+
+    // returns true if the value of a move is a certain win for the agent
+    public static boolean isWin(int value) {
+        return value >= MAX_BOARD_REWARD - MAX_PLY;
+    }
+
+    // returns true if the value of a move is a certain loss for the agent
+    public static boolean isLoss(int value) {
+        return value <= MIN_BOARD_REWARD + MAX_PLY;
+    }
+
+    // returns statistics of the search which chose the last move returned by getAction()
+    public SearchStats getSearchStats() {
+        return lastStats;
+    }
+
+    public SearchProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    public void setProgressListener(SearchProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    // searches root moves in parallel on "pool", or sequentially if pool is null
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    public EndgameDatabase getEndgameDatabase() {
+        return endgame;
+    }
+
+    public void setEndgameDatabase(EndgameDatabase endgame) {
+        this.endgame = endgame;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    public void setTranspositionTable(TranspositionTable table) {
+        this.table = table;
+    }
+
 }
@@ -0,0 +1,336 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    HTTP server which answers requests about a position with JSON, so the
+    engine can be run as a service. Positions are given by the "moves"
+    parameter (column letters starting with red, empty for the empty board)
+
+    Endpoints (GET):
+        /bestmove?moves=DCC[&depth=n][&time=ms]
+            the column MinimaxAgent chooses, searching up to depth n (default
+            DEFAULT_DEPTH) for at most "time" milliseconds (default DEFAULT_TIME)
+        /evaluate?moves=DCC[&depth=n][&time=ms]
+            the same search, reporting the value of the position for the
+            color to move and whether it is a certain win or loss
+        /solve?moves=DCC[&time=ms]
+            the exact score and best move from SolverAgent, or status 504 if
+            the position can't be solved within "time" milliseconds
+
+    Searches run on a BatchEvaluator whose workers share one transposition
+    table, so positions searched by one request are known to later ones.
+    Requests beyond the size of the queue get status 503. Positions in the
+    opening book, if one has been generated, are answered from the book.
+    Search statistics are published over JMX by SearchMonitor
+
+    Usage: java MoveServer [port] [threads] [table MB]
+*/
+public class MoveServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_DEPTH = 12;
+    public static final int DEFAULT_TIME = 1000; // milliseconds
+    public static final int MAX_TIME = 60000; // milliseconds
+
+    private static final int QUEUE_CAPACITY = 64; // requests waiting for a search thread
+
+    private final HttpServer server;
+    private final ExecutorService handlers; // threads which parse requests and wait for their results
+    private final BatchEvaluator evaluator; // searches for /bestmove and /evaluate
+    private final ExecutorService solvers; // threads which run /solve requests
+    private final Semaphore solveSlots; // one permit for every /solve request that can be waiting or running
+    private final ThreadLocal<SolverAgent> solverAgents; // agent of each solver thread
+    private final OpeningBook book; // solved opening positions, or null
+
+    public MoveServer(int port, int threads, long tableMemory, OpeningBook book) throws IOException {
+        this.book = book;
+
+        TranspositionTable table = new TranspositionTable(tableMemory, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        evaluator = new BatchEvaluator(threads, QUEUE_CAPACITY, table);
+        evaluator.setOpeningBook(book);
+
+        TranspositionTable solverTable = new TranspositionTable(Solver.DEFAULT_MEMORY,
+                TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED);
+        solvers = Executors.newFixedThreadPool(threads);
+        solveSlots = new Semaphore(threads + QUEUE_CAPACITY);
+        solverAgents = ThreadLocal.withInitial(() -> {
+            SolverAgent agent = new SolverAgent(new Board(), 'r', new Solver(solverTable));
+            agent.setOpeningBook(book);
+            return agent;
+        });
+
+        // every request that can be queued has a thread to wait for its result on
+        handlers = Executors.newFixedThreadPool(2 * (threads + QUEUE_CAPACITY));
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(handlers);
+        server.createContext("/bestmove", exchange -> handle(exchange, false));
+        server.createContext("/evaluate", exchange -> handle(exchange, true));
+        server.createContext("/solve", this::handleSolve);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long tableMemory = args.length > 2 ? Long.parseLong(args[2]) * 1024 * 1024 : TranspositionTable.DEFAULT_MEMORY;
+
+        OpeningBook book = null;
+        File bookFile = new File(OpeningBook.DEFAULT_FILE);
+        if(bookFile.exists()) {
+            book = OpeningBook.open(bookFile.toPath());
+        }
+
+        MoveServer server = new MoveServer(port, threads, tableMemory, book);
+        SearchMonitor.register();
+        server.start();
+        System.out.println("Listening on port " + port + " with " + threads + " search threads");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // stops accepting requests and shuts down every thread
+    public void stop() {
+        server.stop(0);
+        handlers.shutdown();
+        evaluator.close();
+        solvers.shutdownNow();
+    }
+
+    // answers /bestmove, or /evaluate if "evaluate" is true
+    private void handle(HttpExchange exchange, boolean evaluate) throws IOException {
+        Map<String, String> params = parseQuery(exchange);
+        if(params == null) {
+            return;
+        }
+        String moves = params.get("moves");
+        if(moves == null) {
+            sendError(exchange, 400, "Missing moves");
+            return;
+        }
+
+        BatchRequest request;
+        try {
+            int depth = Math.min(Integer.parseInt(params.getOrDefault("depth", "" + DEFAULT_DEPTH)), Solver.MAX_PLY);
+            int time = Math.min(Integer.parseInt(params.getOrDefault("time", "" + DEFAULT_TIME)), MAX_TIME);
+            request = new BatchRequest(moves, depth, Duration.ofMillis(time));
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "Invalid number: " + e.getMessage());
+            return;
+        }
+
+        BatchResult result;
+        try {
+            // the first ply is always searched, so it may finish after the deadline
+            result = evaluator.submit(request).get();
+        } catch (RejectedExecutionException e) {
+            sendError(exchange, 503, "Too many requests");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server is stopping");
+            return;
+        } catch (ExecutionException e) {
+            sendError(exchange, 500, String.valueOf(e.getCause()));
+            return;
+        }
+
+        if(result.isError()) {
+            sendError(exchange, 400, result.getError());
+            return;
+        }
+
+        StringBuilder json = new StringBuilder("{");
+        if(evaluate) {
+            String outcome = MinimaxAgent.isWin(result.getValue()) ? "win"
+                    : MinimaxAgent.isLoss(result.getValue()) ? "loss" : "unknown";
+            json.append("\"value\":").append(result.getValue());
+            json.append(",\"outcome\":\"").append(outcome).append('"');
+        }
+        else {
+            json.append("\"move\":\"").append(result.getAction()).append('"');
+            json.append(",\"column\":").append(Board.letterDict.get(result.getAction()));
+            json.append(",\"value\":").append(result.getValue());
+        }
+        json.append(",\"depth\":").append(result.getDepth());
+        json.append(",\"nodes\":").append(result.getNodes());
+        json.append(",\"queuedMs\":").append(result.getQueuedNanos() / 1000000.0);
+        json.append(",\"searchMs\":").append(result.getSearchNanos() / 1000000.0);
+        json.append('}');
+        send(exchange, 200, json.toString());
+    }
+
+    // answers /solve
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        Map<String, String> params = parseQuery(exchange);
+        if(params == null) {
+            return;
+        }
+        String moves = params.get("moves");
+        if(moves == null) {
+            sendError(exchange, 400, "Missing moves");
+            return;
+        }
+
+        int time;
+        Board board;
+        try {
+            time = Math.min(Integer.parseInt(params.getOrDefault("time", "" + DEFAULT_TIME)), MAX_TIME);
+            board = Board.fromMoves(moves);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        if(board.getWinner() != null || board.isTie()) {
+            sendError(exchange, 400, "The game is over");
+            return;
+        }
+        char color = moves.length() % 2 == 0 ? 'r' : 'b';
+
+        if(!solveSlots.tryAcquire()) {
+            sendError(exchange, 503, "Too many requests");
+            return;
+        }
+
+        // the slot is released by the task, or here if the task is cancelled before it starts
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if(released.compareAndSet(false, true)) {
+                solveSlots.release();
+            }
+        };
+        long start = System.nanoTime();
+        Future<String> future;
+        try {
+            future = solvers.submit(() -> {
+                try {
+                    SolverAgent agent = solverAgents.get();
+                    agent.setBoard(board);
+                    agent.setColor(color);
+                    char action = agent.getAction();
+                    return "{\"move\":\"" + action + "\",\"column\":" + Board.letterDict.get(action)
+                            + ",\"score\":" + agent.getScore() + ",\"movesToEnd\":" + agent.getMovesToEnd()
+                            + ",\"nodes\":" + agent.getCount() + ",\"searchMs\":" + (System.nanoTime() - start) / 1000000.0 + "}";
+                } finally {
+                    release.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release.run();
+            sendError(exchange, 503, "Server is stopping");
+            return;
+        }
+
+        try {
+            send(exchange, 200, future.get(time, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            // interrupting the solver stops it, so it doesn't keep a thread busy
+            future.cancel(true);
+            release.run();
+            sendError(exchange, 504, "Not solved within " + time + " ms");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            release.run();
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server is stopping");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof CancellationException) {
+                sendError(exchange, 503, "Server is stopping");
+            }
+            else {
+                sendError(exchange, 500, String.valueOf(e.getCause()));
+            }
+        }
+    }
+
+    // returns the parameters in the query string of the request, or null after answering
+    // with an error if the query can't be decoded
+    private static Map<String, String> parseQuery(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if(query == null) {
+            return params;
+        }
+        try {
+            for(String param : query.split("&")) {
+                int equals = param.indexOf('=');
+                if(equals < 0) {
+                    params.put(URLDecoder.decode(param, "UTF-8"), "");
+                }
+                else {
+                    params.put(URLDecoder.decode(param.substring(0, equals), "UTF-8"),
+                            URLDecoder.decode(param.substring(equals + 1), "UTF-8"));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // malformed escapes such as "%zz"
+            sendError(exchange, 400, "Invalid query: " + e.getMessage());
+            return null;
+        }
+        return params;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + quote(message) + "}");
+    }
+
+    // the message can echo request input, so every control character has to be escaped too
+    private static String quote(String text) {
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch(c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if(c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try(OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -1,10 +1,17 @@
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class OnePlayerGame {
     private Board board;
     private Agent agent;
     private boolean playerOneTurn;
     private boolean gameFinished;
+    private boolean pondering; // true if a MinimaxAgent should search while the player decides
+    private boolean ponderAllReplies; // true if every reply is pondered rather than only the predicted one
+    private double elapsedTime; // nanoseconds taken by the agent's last search
+    private volatile CompletableFuture<Character> pendingAction; // search started by requestAgentActionAsync(), or null
+    private GameLogger logger = new GameLogger(GameLogger.Mode.VERBOSE);
 
     public OnePlayerGame(Board board, Agent agent) {
         this.board = board;
@@ -18,7 +25,7 @@ public class OnePlayerGame {
         if(board.canAdd(column) && playerOneTurn) {
             board.add(column, agent.getOtherColor());
             playerOneTurn = !playerOneTurn;
-            System.out.println(board);
+            logger.playerMove(board, agent.getOtherColor(), Board.letters[column]);
         }
         else {
             System.out.println("Invalid input, please try again...");
@@ -26,17 +33,59 @@ public class OnePlayerGame {
     }
 
     public void requestAgentMove() {
+        makeAgentMove(searchAgentAction());
+    }
+
+    // searches for the agent's move on "executor" and completes with the chosen column, without
+    // adding the chip... makeAgentMove() should then be called on the thread that owns the board
+    public CompletableFuture<Character> requestAgentActionAsync(Executor executor) {
+        CompletableFuture<Character> future = CompletableFuture.supplyAsync(this::searchAgentAction, executor);
+        pendingAction = future;
+        return future;
+    }
+
+    // stops the search started by requestAgentActionAsync(), completing its future as cancelled,
+    // as well as any pondering
+    public void cancelAgentAction() {
+        CompletableFuture<Character> future = pendingAction;
+        if(future != null) {
+            future.cancel(false);
+            agent.cancel();
+        }
+        stopPondering();
+    }
+
+    // returns the column the agent chooses, timing the search
+    private char searchAgentAction() {
         double time = System.nanoTime();
         char agentAction = agent.getAction();
-        double elapsedTime = System.nanoTime() - time;
+        elapsedTime = System.nanoTime() - time;
+        return agentAction;
+    }
+
+    // adds the agent's chip to the column of "agentAction"
+    public void makeAgentMove(char agentAction) {
         if (board.canAdd(agentAction) && !playerOneTurn) {
             board.add(agentAction, agent.getColor());
             playerOneTurn = !playerOneTurn;
 
-            System.out.println(board);
-            System.out.println("Elapsed time: " + elapsedTime / 1000000000);
-            System.out.println("States Expanded: " + agent.getCount());
-            System.out.println();
+            logger.agentMove(null, board, agent.getColor(), agentAction, elapsedTime, agent.getCount());
+
+            startPondering();
+        }
+    }
+
+    // lets the agent search on the player's time, if it's a MinimaxAgent and pondering is on
+    private void startPondering() {
+        if(pondering && agent instanceof MinimaxAgent && board.getWinner() == null && !board.isTie()) {
+            ((MinimaxAgent) agent).startPondering(ponderAllReplies);
+        }
+    }
+
+    // stops the agent's pondering, e.g. when the game is closed
+    public void stopPondering() {
+        if(agent instanceof MinimaxAgent) {
+            ((MinimaxAgent) agent).stopPondering();
         }
     }
 
@@ -53,7 +102,7 @@ public class OnePlayerGame {
                     board.add(selectedColumn, color);
                     playerOneTurn = !playerOneTurn;
 
-                    System.out.println(board);
+                    logger.playerMove(board, color, selectedColumn);
                 }
                 else {
                     System.out.println("Invalid input, please try again...");
@@ -62,32 +111,19 @@ public class OnePlayerGame {
             }
             else {
                 color = 'b';
-                double time = System.nanoTime();
-                char agentAction = agent.getAction();
-                double elapsedTime = System.nanoTime() - time;
+                char agentAction = searchAgentAction();
                 if(board.canAdd(agentAction)) {
                     board.add(agentAction, color);
                     playerOneTurn = !playerOneTurn;
 
-                    System.out.println("Black's turn:");
-                    System.out.println(board);
-                    System.out.println("Elapsed time: " + elapsedTime / 1000000000);
-                    System.out.println("States Expanded: " + agent.getCount());
-                    System.out.println();
+                    logger.agentMove("Black's turn:", board, color, agentAction, elapsedTime, agent.getCount());
 
+                    startPondering();
                 }
             }
         }
 
-        if(board.isTie()) {
-            System.out.println("Tie Game!");
-        }
-        else if(board.getWinner().equals("r")) {
-            System.out.println("Red wins!");
-        }
-        else {
-            System.out.println("Black wins!");
-        }
+        logger.result(board, false);
 
         gameFinished = true;
 
@@ -96,4 +132,25 @@ public class OnePlayerGame {
     public boolean isPlayerOneTurn() {
         return playerOneTurn;
     }
+
+    // "allReplies" chooses whether every reply of the player is pondered or only the predicted one
+    public void setPondering(boolean pondering, boolean allReplies) {
+        this.pondering = pondering;
+        this.ponderAllReplies = allReplies;
+        if(!pondering) {
+            stopPondering();
+        }
+    }
+
+    public boolean isPondering() {
+        return pondering;
+    }
+
+    public GameLogger getLogger() {
+        return logger;
+    }
+
+    public void setLogger(GameLogger logger) {
+        this.logger = logger;
+    }
 }
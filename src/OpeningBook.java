@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+    Read-only table of solved positions from the start of the game,
+    written by OpeningBookBuilder. The file is memory-mapped rather
+    than read, so opening it is fast no matter its size, and several
+    processes using the same file share its pages
+
+    File layout (big-endian):
+        int magic, int version, int max ply, int number of entries n
+        n longs: canonical position keys in ascending order
+        n bytes: score of each position for the color to move (see Solver)
+        n bytes: best column of each position, for the orientation of its key
+
+    The canonical key of a board is the smaller of its position key and
+    the key of its mirror image, so mirrored positions share an entry.
+    Positions are assumed to come from games where red moved first
+*/
+public class OpeningBook {
+
+    public static final int MAGIC = 0x43344F42; // "C4OB"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+
+    // file loaded by BoardGUI if it exists... keys only fit the board size they were built for, so
+    // other geometries have their own file, e.g. "opening-8x7-5.book" for 8x7 connect 5
+    public static final String DEFAULT_FILE = Board.WIDTH == 7 && Board.HEIGHT == 6 && Board.CONNECT == 4
+            ? "opening.book" : "opening-" + Board.WIDTH + "x" + Board.HEIGHT + "-" + Board.CONNECT + ".book";
+
+    public static final int NOT_FOUND = Integer.MIN_VALUE; // returned by getScore() for positions not in the book
+
+    private final int maxPly; // positions with up to this many chips were stored
+    private final int size; // number of entries
+    private final LongBuffer keys;
+    private final ByteBuffer scores;
+    private final ByteBuffer moves;
+
+    private OpeningBook(MappedByteBuffer buffer) throws IOException {
+        if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not an opening book");
+        }
+        maxPly = buffer.getInt(8);
+        size = buffer.getInt(12);
+
+        buffer.position(HEADER_BYTES);
+        keys = buffer.slice().asLongBuffer();
+        buffer.position(HEADER_BYTES + size * 8);
+        scores = buffer.slice();
+        buffer.position(HEADER_BYTES + size * 9);
+        moves = buffer.slice();
+    }
+
+    // memory-maps the book stored at "path"
+    public static OpeningBook open(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // returns best column for "color" in "board", or -1 if the board isn't in the book
+    public int getBestMove(Board board, char color) {
+        if(!isColorToMove(board, color)) {
+            return -1;
+        }
+
+        long key = board.getPositionKey();
+        long mirrored = Board.mirrorKey(key);
+        int index = find(Math.min(key, mirrored));
+        if(index < 0) {
+            return -1;
+        }
+
+        // moves are stored for the orientation of the canonical key
+        int column = moves.get(index);
+        return mirrored < key ? Board.WIDTH - 1 - column : column;
+    }
+
+    // returns score of "board" for "color", or NOT_FOUND if the board isn't in the book
+    public int getScore(Board board, char color) {
+        if(!isColorToMove(board, color)) {
+            return NOT_FOUND;
+        }
+
+        long key = board.getPositionKey();
+        int index = find(Math.min(key, Board.mirrorKey(key)));
+        return index < 0 ? NOT_FOUND : scores.get(index);
+    }
+
+    // returns true if "color" is to move in "board" when red moved first
+    private boolean isColorToMove(Board board, char color) {
+        return board.getChipsInPlay() <= maxPly && (board.getChipsInPlay() % 2 == 0) == (color == 'r');
+    }
+
+    // returns index of "key" using binary search, or -1 if it's not in the book
+    private int find(long key) {
+        int low = 0;
+        int high = size - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = keys.get(mid);
+            if(midKey < key) {
+                low = mid + 1;
+            }
+            else if(midKey > key) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int getMaxPly() {
+        return maxPly;
+    }
+
+    public int size() {
+        return size;
+    }
+}
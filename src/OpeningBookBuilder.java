@@ -0,0 +1,197 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/*
+    Offline tool which finds the exact scores and best moves of every
+    position that can be reached in up to a given number of moves from
+    the empty board and writes them to an OpeningBook file. Mirrored
+    positions are only stored once. Positions are found one ply at a
+    time as sorted arrays of canonical keys, so collecting millions of
+    them takes little memory. Only the positions with the most chips are
+    solved, in parallel with a Solver for each thread... every other
+    position is scored from the positions after its moves, from the
+    fullest back to the empty board, like in EndgameDatabaseBuilder
+
+    Solving the fullest positions is still the whole cost. On a 7x6
+    board, Solver takes about 18 s for a typical 8-chip position, and
+    there are 91295 of them, or half a second at 12 chips, where there
+    are 5.8 million, so 7x6 books take weeks of CPU time at any depth.
+    Smaller boards are practical: 5x4 up to 10 chips builds in a second
+    and 6x5 up to 8 chips in a few minutes on one core
+
+    Usage: java OpeningBookBuilder <max ply> [file]
+*/
+public class OpeningBookBuilder {
+
+    // transposition table size of each thread's solver
+    private static final long SOLVER_MEMORY = 32L * 1024 * 1024;
+
+    private static final int MAX_PLY = Board.WIDTH * Board.HEIGHT;
+
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.out.println("Usage: java OpeningBookBuilder <max ply> [file]");
+            return;
+        }
+        int maxPly = Integer.parseInt(args[0]);
+        String file = args.length > 1 ? args[1] : OpeningBook.DEFAULT_FILE;
+
+        // canonical keys of the unfinished positions with each number of chips
+        long[][] levels = new long[Math.min(maxPly, MAX_PLY - 1) + 1][];
+        levels[0] = new long[] {Board.emptyPositionKey()};
+        int total = 1;
+        for(int chips = 1; chips < levels.length; chips++) {
+            levels[chips] = nextLevel(levels[chips - 1], chips - 1);
+            total += levels[chips].length;
+            System.out.println(chips + " chips: " + levels[chips].length + " positions");
+        }
+
+        // only the fullest positions are solved... the scores and best moves of the others follow
+        // from those of the positions after their moves
+        int deepest = levels.length - 1;
+        byte[][] scores = new byte[levels.length][];
+        byte[][] bestMoves = new byte[levels.length][];
+        long time = System.nanoTime();
+        scores[deepest] = new byte[levels[deepest].length];
+        bestMoves[deepest] = new byte[levels[deepest].length];
+        solve(levels[deepest], scores[deepest], bestMoves[deepest], time);
+
+        for(int chips = deepest - 1; chips >= 0; chips--) {
+            scores[chips] = new byte[levels[chips].length];
+            bestMoves[chips] = new byte[levels[chips].length];
+
+            final int level = chips;
+            IntStream.range(0, levels[chips].length).parallel().forEach(i -> {
+                Board board = Board.fromPositionKey(levels[level][i]);
+
+                // like Solver.bestMove(), columns closer to the center are preferred, so the book agrees with the solver
+                int bestColumn = -1;
+                int bestScore = Integer.MIN_VALUE;
+                for(int c : Solver.columnOrder) {
+                    if(board.canAdd(c)) {
+                        int score = score(board, levels[level][i], level, c, levels[level + 1], scores[level + 1]);
+                        if(score > bestScore) {
+                            bestColumn = c;
+                            bestScore = score;
+                        }
+                    }
+                }
+                bestMoves[level][i] = (byte) bestColumn;
+                scores[level][i] = (byte) bestScore;
+            });
+            System.out.printf("%d chips scored (%.1f s)%n", chips, (System.nanoTime() - time) / 1000000000.0);
+        }
+
+        // the levels are merged into one sorted array, as a position's key doesn't depend on its number of chips
+        long[] keys = new long[total];
+        byte[] bookScores = new byte[total];
+        byte[] bookMoves = new byte[total];
+        int[] next = new int[levels.length];
+        for(int i = 0; i < total; i++) {
+            int from = -1;
+            for(int chips = 0; chips < levels.length; chips++) {
+                if(next[chips] < levels[chips].length
+                        && (from < 0 || levels[chips][next[chips]] < levels[from][next[from]])) {
+                    from = chips;
+                }
+            }
+            keys[i] = levels[from][next[from]];
+            bookScores[i] = scores[from][next[from]];
+            bookMoves[i] = bestMoves[from][next[from]];
+            next[from]++;
+        }
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(OpeningBook.MAGIC);
+            out.writeInt(OpeningBook.VERSION);
+            out.writeInt(maxPly);
+            out.writeInt(keys.length);
+            for(long key : keys) {
+                out.writeLong(key);
+            }
+            out.write(bookScores);
+            out.write(bookMoves);
+        }
+
+        System.out.printf("Wrote %d positions to %s in %.1f s%n", keys.length, file, (System.nanoTime() - time) / 1000000000.0);
+    }
+
+    // solves the positions with canonical keys "keys" in parallel, each thread using its own Solver
+    private static void solve(long[] keys, byte[] scores, byte[] bestMoves, long time) {
+        System.out.println("Solving " + keys.length + " positions...");
+        ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() ->
+                new Solver(new TranspositionTable(SOLVER_MEMORY, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED)));
+        AtomicInteger solved = new AtomicInteger();
+
+        IntStream.range(0, keys.length).parallel().forEach(i -> {
+            // the board is rebuilt from its canonical key, so its best move is already in that orientation
+            Board board = Board.fromPositionKey(keys[i]);
+            char color = board.getChipsInPlay() % 2 == 0 ? 'r' : 'b';
+
+            Solver solver = solvers.get();
+            bestMoves[i] = (byte) solver.bestMove(board, color);
+            scores[i] = (byte) solver.getBestScore();
+
+            int count = solved.incrementAndGet();
+            if(count % 1000 == 0) {
+                System.out.printf("%d / %d (%.0f s)%n", count, keys.length, (System.nanoTime() - time) / 1000000000.0);
+            }
+        });
+    }
+
+    // returns the score of playing "columnIndex", which must not be full, in "board", which has canonical key
+    // "key" and "chips" chips, given the sorted keys and scores of the positions with one more chip
+    private static int score(Board board, long key, int chips, int columnIndex, long[] nextKeys, byte[] nextScores) {
+        char color = chips % 2 == 0 ? 'r' : 'b';
+        if(board.isWinningMove(columnIndex, color)) {
+            return (MAX_PLY + 1 - chips) / 2;
+        }
+        if(chips + 1 == MAX_PLY) {
+            return 0;
+        }
+
+        // the position after the move is unfinished, so it was collected in the next level
+        long next = Board.playKey(key, columnIndex, color == 'r');
+        return -nextScores[Arrays.binarySearch(nextKeys, Math.min(next, Board.mirrorKey(next)))];
+    }
+
+    // returns the sorted canonical keys of the unfinished positions after one move from the positions
+    // in "level", which have "chips" chips
+    private static long[] nextLevel(long[] level, int chips) {
+        boolean red = chips % 2 == 0;
+        char color = red ? 'r' : 'b';
+
+        long[] next = new long[Math.max(16, 2 * level.length)];
+        int size = 0;
+        for(long key : level) {
+            Board board = Board.fromPositionKey(key);
+            for(int c = 0; c < Board.WIDTH; c++) {
+                // positions which are won or full are finished, and aren't stored
+                if(!board.canAdd(c) || board.isWinningMove(c, color) || chips + 1 == MAX_PLY) {
+                    continue;
+                }
+
+                long nextKey = Board.playKey(key, c, red);
+                if(size == next.length) {
+                    next = Arrays.copyOf(next, 2 * size);
+                }
+                next[size++] = Math.min(nextKey, Board.mirrorKey(nextKey));
+            }
+        }
+
+        // positions reached by more than one move are only kept once
+        Arrays.sort(next, 0, size);
+        int unique = 0;
+        for(int i = 0; i < size; i++) {
+            if(unique == 0 || next[i] != next[unique - 1]) {
+                next[unique++] = next[i];
+            }
+        }
+        return Arrays.copyOf(next, unique);
+    }
+}
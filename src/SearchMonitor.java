@@ -0,0 +1,116 @@
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+    Totals of the SearchStats of every MinimaxAgent search in the process,
+    which can be published as a JMX MBean with register() so the engine
+    can be watched while it runs. Rates are over every search since the
+    monitor was created or last reset
+*/
+public class SearchMonitor implements SearchMonitorMXBean {
+
+    public static final String OBJECT_NAME = "connectfour:type=SearchMonitor";
+
+    private static final SearchMonitor instance = new SearchMonitor();
+
+    private long searches;
+    private long nodes;
+    private long interiorNodes;
+    private long betaCutoffs;
+    private long firstMoveCutoffs;
+    private long skippedChildren;
+    private long searchedChildren;
+    private long tableProbes;
+    private long tableHits;
+    private long depths; // sum of the depths of every search
+    private long elapsedNanos;
+    private double lastEffectiveBranchingFactor;
+
+    public static SearchMonitor getInstance() {
+        return instance;
+    }
+
+    // registers the monitor with the platform MBean server, if it isn't registered already
+    public static void register() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if(!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // adds the statistics of a finished search
+    public synchronized void record(SearchStats stats) {
+        searches++;
+        nodes += stats.getNodes();
+        interiorNodes += stats.getInteriorNodes();
+        betaCutoffs += stats.getBetaCutoffs();
+        firstMoveCutoffs += stats.getFirstMoveCutoffs();
+        skippedChildren += stats.getSkippedChildren();
+        searchedChildren += stats.getSearchedChildren();
+        tableProbes += stats.getTableProbes();
+        tableHits += stats.getTableHits();
+        depths += stats.getDepth();
+        elapsedNanos += stats.getElapsedNanos();
+        lastEffectiveBranchingFactor = stats.getEffectiveBranchingFactor();
+    }
+
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    public synchronized long getNodes() {
+        return nodes;
+    }
+
+    public synchronized double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes / (elapsedNanos / 1000000000.0);
+    }
+
+    public synchronized double getBetaCutoffRate() {
+        return interiorNodes == 0 ? 0 : (double) betaCutoffs / interiorNodes;
+    }
+
+    public synchronized double getFirstMoveCutoffRatio() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    public synchronized double getSkippedChildRate() {
+        return skippedChildren + searchedChildren == 0 ? 0 : (double) skippedChildren / (skippedChildren + searchedChildren);
+    }
+
+    public synchronized double getTableHitRate() {
+        return tableProbes == 0 ? 0 : (double) tableHits / tableProbes;
+    }
+
+    public synchronized double getAverageDepth() {
+        return searches == 0 ? 0 : (double) depths / searches;
+    }
+
+    public synchronized double getAverageSearchMillis() {
+        return searches == 0 ? 0 : elapsedNanos / 1000000.0 / searches;
+    }
+
+    public synchronized double getLastEffectiveBranchingFactor() {
+        return lastEffectiveBranchingFactor;
+    }
+
+    public synchronized void reset() {
+        searches = 0;
+        nodes = 0;
+        interiorNodes = 0;
+        betaCutoffs = 0;
+        firstMoveCutoffs = 0;
+        skippedChildren = 0;
+        searchedChildren = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        depths = 0;
+        elapsedNanos = 0;
+        lastEffectiveBranchingFactor = 0;
+    }
+}
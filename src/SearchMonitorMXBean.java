@@ -0,0 +1,28 @@
+/*
+    Management interface of SearchMonitor, whose attributes can be
+    watched with JConsole or any other JMX client
+*/
+public interface SearchMonitorMXBean {
+
+    long getSearches();
+
+    long getNodes();
+
+    double getNodesPerSecond();
+
+    double getBetaCutoffRate();
+
+    double getFirstMoveCutoffRatio();
+
+    double getSkippedChildRate();
+
+    double getTableHitRate();
+
+    double getAverageDepth();
+
+    double getAverageSearchMillis();
+
+    double getLastEffectiveBranchingFactor();
+
+    void reset();
+}
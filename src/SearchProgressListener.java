@@ -0,0 +1,11 @@
+/*
+    A SearchProgressListener is told about the progress of a MinimaxAgent
+    search, from the thread running the search, every time a move at the
+    root has been searched
+*/
+public interface SearchProgressListener {
+
+    // "bestColumn" is the best column found so far by the search to "depth", which has
+    // a value of "value" for the agent, and "nodes" is the number of states expanded so far
+    void progress(int depth, long nodes, int bestColumn, int value);
+}
@@ -0,0 +1,223 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Statistics of one MinimaxAgent search, returned by getSearchStats()
+    after getAction(). Each searching thread counts into its own Counters,
+    made of plain longs so that counting a node costs no more than an
+    increment, and adds them to the search's statistics with add() after
+    each root move. Several threads of a parallel search can add their
+    counters at once
+
+    Nodes are the states expanded, counted by their ply (distance from
+    the root). A beta cutoff is a node whose remaining moves were skipped
+    because one of its moves was already good enough, and a first move
+    cutoff is one where that was the first move searched, which is how
+    often move ordering picked the best move first. The effective
+    branching factor is the number of moves per node which would give
+    the same number of nodes in a tree of the search's depth
+
+    Skipped children are the legal moves of interior nodes which were
+    never searched, because of a cutoff or because they were pruned:
+    the child boards that building every successor up front would
+    have created for nothing
+*/
+public class SearchStats {
+
+    private final LongAdder[] nodesByPly = new LongAdder[Board.WIDTH * Board.HEIGHT + 1];
+    private final LongAdder interiorNodes = new LongAdder(); // nodes which searched at least one move
+    private final LongAdder betaCutoffs = new LongAdder();
+    private final LongAdder firstMoveCutoffs = new LongAdder();
+    private final LongAdder skippedChildren = new LongAdder();
+    private final LongAdder tableProbes = new LongAdder();
+    private final LongAdder tableHits = new LongAdder();
+
+    private final long startTime = System.nanoTime();
+    private long elapsedNanos;
+    private int depth; // depth of the deepest completed search
+
+    public SearchStats() {
+        for(int i = 0; i < nodesByPly.length; i++) {
+            nodesByPly[i] = new LongAdder();
+        }
+    }
+
+    // counts of part of a search, which are only used by the thread that owns them
+    public static class Counters {
+
+        private final long[] nodesByPly = new long[Board.WIDTH * Board.HEIGHT + 1];
+        private long nodes;
+        private long interiorNodes;
+        private long betaCutoffs;
+        private long firstMoveCutoffs;
+        private long skippedChildren;
+        private long tableProbes;
+        private long tableHits;
+
+        public void addNode(int ply) {
+            nodesByPly[ply]++;
+            nodes++;
+        }
+
+        public void addInteriorNode() {
+            interiorNodes++;
+        }
+
+        // "firstMove" is true if the cutoff was caused by the first move searched
+        public void addBetaCutoff(boolean firstMove) {
+            betaCutoffs++;
+            if(firstMove) {
+                firstMoveCutoffs++;
+            }
+        }
+
+        // "count" legal moves of an interior node weren't searched
+        public void addSkippedChildren(int count) {
+            if(count > 0) {
+                skippedChildren += count;
+            }
+        }
+
+        // "hit" is true if the table had an entry for the position
+        public void addTableProbe(boolean hit) {
+            tableProbes++;
+            if(hit) {
+                tableHits++;
+            }
+        }
+
+        // returns the number of nodes counted since the last reset
+        public long getNodes() {
+            return nodes;
+        }
+
+        public void reset() {
+            Arrays.fill(nodesByPly, 0);
+            nodes = 0;
+            interiorNodes = 0;
+            betaCutoffs = 0;
+            firstMoveCutoffs = 0;
+            skippedChildren = 0;
+            tableProbes = 0;
+            tableHits = 0;
+        }
+    }
+
+    // adds "counters" to the statistics, which can be done by several threads at once
+    public void add(Counters counters) {
+        for(int ply = 0; ply < nodesByPly.length; ply++) {
+            if(counters.nodesByPly[ply] != 0) {
+                nodesByPly[ply].add(counters.nodesByPly[ply]);
+            }
+        }
+        interiorNodes.add(counters.interiorNodes);
+        betaCutoffs.add(counters.betaCutoffs);
+        firstMoveCutoffs.add(counters.firstMoveCutoffs);
+        skippedChildren.add(counters.skippedChildren);
+        tableProbes.add(counters.tableProbes);
+        tableHits.add(counters.tableHits);
+    }
+
+    // records the end of the search, which completed "depth"
+    public void finish(int depth) {
+        this.depth = depth;
+        elapsedNanos = System.nanoTime() - startTime;
+    }
+
+    public long getNodes() {
+        long nodes = 0;
+        for(LongAdder plyNodes : nodesByPly) {
+            nodes += plyNodes.sum();
+        }
+        return nodes;
+    }
+
+    // returns the number of nodes at each ply, up to the deepest ply which was reached
+    public long[] getNodesByPly() {
+        int maxPly = nodesByPly.length - 1;
+        while(maxPly > 0 && nodesByPly[maxPly].sum() == 0) {
+            maxPly--;
+        }
+        long[] nodes = new long[maxPly + 1];
+        for(int i = 0; i <= maxPly; i++) {
+            nodes[i] = nodesByPly[i].sum();
+        }
+        return nodes;
+    }
+
+    public long getInteriorNodes() {
+        return interiorNodes.sum();
+    }
+
+    public long getBetaCutoffs() {
+        return betaCutoffs.sum();
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs.sum();
+    }
+
+    public long getSkippedChildren() {
+        return skippedChildren.sum();
+    }
+
+    public long getTableProbes() {
+        return tableProbes.sum();
+    }
+
+    public long getTableHits() {
+        return tableHits.sum();
+    }
+
+    // returns the fraction of interior nodes which had a beta cutoff
+    public double getBetaCutoffRate() {
+        return ratio(getBetaCutoffs(), getInteriorNodes());
+    }
+
+    // returns the fraction of beta cutoffs caused by the first move searched
+    public double getFirstMoveCutoffRatio() {
+        return ratio(getFirstMoveCutoffs(), getBetaCutoffs());
+    }
+
+    // returns the moves of interior nodes which were searched: every node past ply 1
+    public long getSearchedChildren() {
+        return getNodes() - nodesByPly[1].sum();
+    }
+
+    // returns the fraction of the legal moves of interior nodes which weren't searched
+    public double getSkippedChildRate() {
+        return ratio(getSkippedChildren(), getSkippedChildren() + getSearchedChildren());
+    }
+
+    // returns the fraction of transposition table probes which found an entry
+    public double getTableHitRate() {
+        return ratio(getTableHits(), getTableProbes());
+    }
+
+    public double getEffectiveBranchingFactor() {
+        return depth == 0 ? 0 : Math.pow(getNodes(), 1.0 / depth);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : getNodes() / (elapsedNanos / 1000000000.0);
+    }
+
+    private static double ratio(long count, long total) {
+        return total == 0 ? 0 : (double) count / total;
+    }
+
+    public String toString() {
+        return String.format("depth %d, %d nodes in %.3f ms (%.0f/s), EBF %.2f, beta cutoffs %.1f%% (%.1f%% first move), "
+                        + "%d children skipped, TT hits %.1f%%", depth, getNodes(), elapsedNanos / 1000000.0,
+                getNodesPerSecond(), getEffectiveBranchingFactor(), 100 * getBetaCutoffRate(),
+                100 * getFirstMoveCutoffRatio(), getSkippedChildren(), 100 * getTableHitRate());
+    }
+}
@@ -0,0 +1,280 @@
+import java.util.concurrent.CancellationException;
+
+/*
+    Solver finds the exact value of a position when both colors play
+    perfectly, searching to the end of the game with negamax and
+    alpha-beta pruning. Instead of one search with a wide window, it
+    repeatedly asks whether the score is above a guess with a window
+    of width one, narrowing the range of possible scores until only
+    one is left
+
+    Only moves that don't let the other color win immediately are
+    searched, ordered by how many spaces they would let the color
+    win at. The first move is searched with the full window and the
+    rest with a null window, which is widened only if a move turns
+    out to be better (principal variation search). bestMove() does
+    the same across the root moves, solving a move exactly only if
+    it beats the best move so far
+
+    Scores are in terms of the color to move: 0 is a draw, a positive
+    score is a win and a negative score is a loss. Wins that take fewer
+    moves have larger scores: a win with the chip added when there are
+    n chips on the board scores (MAX_PLY + 1 - n) / 2
+
+    Boards passed to the solver are restored before it returns, unless
+    the solving thread is interrupted: the search then stops by throwing
+    a CancellationException and leaves the board mid-search
+*/
+public class Solver {
+
+    public static final int MAX_PLY = Board.WIDTH * Board.HEIGHT; // number of spaces on the board
+
+    public static final long DEFAULT_MEMORY = 64L * 1024 * 1024; // default size of the transposition table in bytes
+
+    static final int[] columnOrder = new int[Board.WIDTH]; // columns ordered from the center outwards
+    static {
+        for(int i = 0; i < Board.WIDTH; i++) {
+            columnOrder[i] = Board.WIDTH / 2 + (1 - 2 * (i % 2)) * (i + 1) / 2;
+        }
+    }
+
+    private final TranspositionTable table; // bounds of positions which have been searched
+    private long nodes; // number of positions searched since the last call to resetNodes()
+    private int bestScore; // score of the column returned by the last call to bestMove()
+
+    public Solver() {
+        this(new TranspositionTable(DEFAULT_MEMORY, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED));
+    }
+
+    public Solver(TranspositionTable table) {
+        this.table = table;
+    }
+
+    // returns the exact score of "board" for "color", which must be the color to move
+    public int solve(Board board, char color) {
+        table.newSearch();
+        return solve(board, color, MAX_PLY);
+    }
+
+    // returns the exact score of "board" for "color" if it's below "limit", or otherwise a score of
+    // at least "limit"
+    private int solve(Board board, char color, int limit) {
+        int chips = board.getChipsInPlay();
+
+        // the color to move has lost if the other color won with the last chip
+        if(board.getWinner() != null) {
+            return -(MAX_PLY + 2 - chips) / 2;
+        }
+        else if(board.isTie()) {
+            return 0;
+        }
+
+        for(int c = 0; c < Board.WIDTH; c++) {
+            if(board.canAdd(c) && board.isWinningMove(c, color)) {
+                return (MAX_PLY + 1 - chips) / 2;
+            }
+        }
+
+        // search with null windows until the range of possible scores is a single score
+        int min = -(MAX_PLY - chips) / 2;
+        int max = Math.min((MAX_PLY + 1 - chips) / 2, limit);
+        while(min < max) {
+            int guess = min + (max - min) / 2;
+
+            // probing near 0 first finds whether the position is a win, draw or loss quickly
+            if(guess <= 0 && min / 2 < guess) {
+                guess = min / 2;
+            }
+            else if(guess >= 0 && max / 2 > guess) {
+                guess = max / 2;
+            }
+
+            int score = negamax(board, color, guess, guess + 1);
+            if(score <= guess) {
+                max = score;
+            }
+            else {
+                min = score;
+            }
+        }
+        return min;
+    }
+
+    // returns the column with the highest score for "color", which must be the color to move,
+    // preferring columns closer to the center... its score is then returned by getBestScore()
+    // and the number of chips until the end of the game by getMovesToEnd()
+    public int bestMove(Board board, char color) {
+        table.newSearch();
+
+        // every immediate win is found before any column is solved
+        for(int c : columnOrder) {
+            if(board.canAdd(c) && board.isWinningMove(c, color)) {
+                bestScore = (MAX_PLY + 1 - board.getChipsInPlay()) / 2;
+                return c;
+            }
+        }
+
+        int bestColumn = -1;
+        bestScore = Integer.MIN_VALUE;
+        for(int c : columnOrder) {
+            if(!board.canAdd(c)) {
+                continue;
+            }
+
+            // after the first column, a column is only solved exactly if it scores more than the
+            // best column, so the score of the other color is limited to less than -bestScore
+            board.play(c, color);
+            int score = -solve(board, otherColor(color), bestColumn < 0 ? MAX_PLY : -bestScore);
+            board.undo();
+
+            if(score > bestScore) {
+                bestScore = score;
+                bestColumn = c;
+            }
+        }
+        return bestColumn;
+    }
+
+    // negamax search with alpha-beta pruning, where "color" can't win with its next chip... returns
+    // the exact score if it's between alpha and beta, and otherwise a bound on the same side of the window
+    private int negamax(Board board, char color, int alpha, int beta) {
+        if((++nodes & 4095) == 0 && Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Solver was interrupted");
+        }
+
+        int chips = board.getChipsInPlay();
+        long next = board.getNonLosingSpaces(color);
+        if(next == 0) {
+            // every move lets the other color win with its next chip
+            return -(MAX_PLY - chips) / 2;
+        }
+        if(chips >= MAX_PLY - 2) {
+            // neither color can win with the last two chips
+            return 0;
+        }
+
+        // the other color can't win with its next chip, so the earliest it can win is after that
+        int min = -(MAX_PLY - 2 - chips) / 2;
+        if(alpha < min) {
+            alpha = min;
+            if(alpha >= beta) {
+                return alpha;
+            }
+        }
+
+        // the earliest possible win is now with the color's next chip after this one
+        int max = (MAX_PLY - 1 - chips) / 2;
+
+        // boards without position keys use the Zobrist hash, which is almost always unique
+        long key = Board.PADDED ? board.getPositionKey() : board.getHash();
+        long entry = table.probe(key);
+        int hashMove = TranspositionTable.NO_MOVE;
+        if(entry != 0) {
+            int score = TranspositionTable.score(entry);
+            int bound = TranspositionTable.bound(entry);
+            hashMove = TranspositionTable.move(entry);
+            if(bound == TranspositionTable.EXACT) {
+                return score;
+            }
+            else if(bound == TranspositionTable.UPPER_BOUND) {
+                max = Math.min(max, score);
+            }
+            else {
+                alpha = Math.max(alpha, score);
+            }
+        }
+
+        if(beta > max) {
+            beta = max;
+        }
+        if(alpha >= beta) {
+            return alpha;
+        }
+
+        // order the moves by the stored best move, then by the number of spaces the color could
+        // then win at, keeping columns closer to the center first when they are equal
+        int[] moves = new int[Board.WIDTH];
+        int[] moveScores = new int[Board.WIDTH];
+        int moveCount = 0;
+        for(int c : columnOrder) {
+            if((next & Board.columnMask(c)) == 0) {
+                continue;
+            }
+            int moveScore = c == hashMove ? Integer.MAX_VALUE : board.countWinningSpacesAfter(c, color);
+            int i = moveCount++;
+            for(; i > 0 && moveScores[i - 1] < moveScore; i--) {
+                moves[i] = moves[i - 1];
+                moveScores[i] = moveScores[i - 1];
+            }
+            moves[i] = c;
+            moveScores[i] = moveScore;
+        }
+
+        int alphaSearched = alpha;
+        int bestMove = TranspositionTable.NO_MOVE;
+        char otherColor = otherColor(color);
+        for(int i = 0; i < moveCount; i++) {
+            int c = moves[i];
+
+            // moves after the first are expected to be worse, which a null window proves cheaply
+            board.play(c, color);
+            int score;
+            if(i == 0) {
+                score = -negamax(board, otherColor, -beta, -alpha);
+            }
+            else {
+                score = -negamax(board, otherColor, -alpha - 1, -alpha);
+                if(score > alpha && score < beta) {
+                    score = -negamax(board, otherColor, -beta, -alpha);
+                }
+            }
+            board.undo();
+
+            if(score >= beta) {
+                table.store(key, score, MAX_PLY - chips, TranspositionTable.LOWER_BOUND, c);
+                return score;
+            }
+            if(score > alpha) {
+                alpha = score;
+                bestMove = c;
+            }
+        }
+
+        int bound = alpha > alphaSearched ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(key, alpha, MAX_PLY - chips, bound, bestMove);
+        return alpha;
+    }
+
+    // returns the number of chips that will be added until the game ends, including the winning chip,
+    // when the color to move in a board with "chips" chips has a score of "score"
+    public static int movesToEnd(int score, int chips) {
+        if(score == 0) {
+            return MAX_PLY - chips;
+        }
+
+        // invert the score formula to find the number of chips on the board before the winning chip,
+        // which is added by the color to move for a win and by the other color for a loss
+        int winningChips = MAX_PLY + 1 - 2 * Math.abs(score);
+        boolean colorToMoveWins = score > 0;
+        if(((winningChips - chips) % 2 == 0) != colorToMoveWins) {
+            winningChips--;
+        }
+        return winningChips - chips + 1;
+    }
+
+    private static char otherColor(char color) {
+        return color == 'r' ? 'b' : 'r';
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public void resetNodes() {
+        nodes = 0;
+    }
+}
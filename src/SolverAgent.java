@@ -0,0 +1,85 @@
+/*
+    Agent object which plays perfectly, using a Solver to find the
+    exact value of every move rather than searching to a fixed depth.
+    Positions from the start of the game can take a long time to solve,
+    so an opening book should be set for them where possible
+
+    After getAction(), getScore() returns the value of the chosen move
+    (see Solver) and getMovesToEnd() the number of chips that will be
+    added until the game ends if both colors play perfectly
+*/
+public class SolverAgent extends Agent {
+
+    private final Solver solver;
+    private OpeningBook book; // solved opening positions, or null to always solve
+
+    private int score; // score of the last move returned by getAction()
+    private int movesToEnd; // chips until the end of the game after the last call to getAction()
+
+    // default constructor sets agent's chip color to black
+    public SolverAgent(Board board) {
+        this(board, 'b');
+    }
+
+    public SolverAgent(Board board, char color) {
+        this(board, color, new Solver());
+    }
+
+    // solvers can be shared between agents of the same thread, since positions they store stay solved
+    public SolverAgent(Board board, char color, Solver solver) {
+        super(board, color);
+        this.solver = solver;
+    }
+
+    // returns the column with the highest score, preferring columns closer to the center
+    public char getAction() {
+
+        resetCount(); // reset count field
+
+        Board board = getBoard();
+        int chips = board.getChipsInPlay();
+
+        if(book != null) {
+            int bookColumn = book.getBestMove(board, getColor());
+            if(bookColumn >= 0) {
+                score = book.getScore(board, getColor());
+                movesToEnd = Solver.movesToEnd(score, chips);
+                return Board.letters[bookColumn];
+            }
+        }
+
+        // search is done on a copy so the game board is never left mid-search
+        board = board.deepCopy(board);
+
+        solver.resetNodes();
+        int column = solver.bestMove(board, getColor());
+        addCount(solver.getNodes());
+
+        score = solver.getBestScore();
+        movesToEnd = Solver.movesToEnd(score, chips);
+        return Board.letters[column];
+
+    }
+
+    // returns score of the last move chosen by getAction(): positive for a win, 0 for a draw and
+    // negative for a loss
+    public int getScore() {
+        return score;
+    }
+
+    public int getMovesToEnd() {
+        return movesToEnd;
+    }
+
+    public Solver getSolver() {
+        return solver;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.concurrent.ForkJoinPool;
+
+/*
+    Measures how MinimaxAgent's parallel root search scales by
+    searching the positions in BenchmarkPositions with pools of
+    1, 2, 4, ... threads up to the number of available processors,
+    and prints the time, states expanded and speedup for each
+    thread count
+
+    Usage: java SpeedupReport [depth]
+*/
+public class SpeedupReport {
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        // search once without timing so that the JIT compiler has warmed up
+        run(depth, new ForkJoinPool(processors));
+
+        System.out.println("Depth: " + depth);
+        System.out.println("threads\ttime (s)\tstates\tspeedup");
+
+        double baseTime = 0;
+        for(int threads = 1; threads <= processors; threads = nextThreadCount(threads, processors)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+
+            long time = System.nanoTime();
+            long states = run(depth, pool);
+            double elapsedTime = (System.nanoTime() - time) / 1000000000.0;
+            pool.shutdown();
+
+            if(threads == 1) {
+                baseTime = elapsedTime;
+            }
+            System.out.printf("%d\t%.3f\t%d\t%.2f%n", threads, elapsedTime, states, baseTime / elapsedTime);
+        }
+    }
+
+    // searches every position with a fresh agent and returns the total number of states expanded
+    private static long run(int depth, ForkJoinPool pool) {
+        long states = 0;
+        Board[] boards = BenchmarkPositions.boards();
+        for(int i = 0; i < boards.length; i++) {
+            MinimaxAgent agent = new MinimaxAgent(boards[i], BenchmarkPositions.colorToMove(i), depth);
+            agent.setPool(pool);
+            agent.getAction();
+            states += agent.getCount();
+        }
+        return states;
+    }
+
+    // doubles the thread count, making sure the number of processors is also measured
+    private static int nextThreadCount(int threads, int processors) {
+        if(threads < processors && threads * 2 > processors) {
+            return processors;
+        }
+        return threads * 2;
+    }
+}
@@ -0,0 +1,381 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+    Plays many games between two agents in parallel, without printing the
+    boards, and reports the results of the first agent against the second:
+    wins, draws and losses, the difference in Elo rating they suggest (with
+    a 95% confidence interval), and each agent's states per second and move
+    times. Every opening is played twice, once with each agent as red
+
+    Agents are given as specs:
+        random                  Agent, which plays random columns
+        minimax:<depth>[:eval]  MinimaxAgent searching to depth
+        timed:<ms>[:eval]       MinimaxAgent searching for ms milliseconds per move
+        solver                  SolverAgent, using the opening book if there is one
+    where eval is "windows" (WindowEvaluator, the default) or "consecutive"
+    (ConsecutiveChipsEvaluator)
+
+    Usage: java Tournament <games> <agent> <agent> [options]
+        --threads n       number of games played at once (default: available processors)
+        --random-plies n  start each pair of games after n random moves (default 2)
+        --openings file   start from the openings in file, one string of moves per line
+        --seed n          seed of the random openings and random agents (default 0)
+        --csv file        also write the results to file
+        --record file     append every game to file (see GameRecordWriter), on boards with position keys
+*/
+public class Tournament {
+
+    private static final int DEFAULT_RANDOM_PLIES = 2;
+
+    // transposition table size of each search agent, small since every thread has two
+    private static final long TABLE_MEMORY = 4L * 1024 * 1024;
+
+    // how an agent of a tournament is created and asked for its moves
+    private static class AgentSpec {
+        final String spec;
+        final String type;
+        final int limit; // depth, or milliseconds per move for timed agents
+        final Evaluator evaluator;
+
+        AgentSpec(String spec) {
+            this.spec = spec;
+            String[] parts = spec.split(":");
+            type = parts[0];
+            if(!type.equals("random") && !type.equals("minimax") && !type.equals("timed") && !type.equals("solver")) {
+                throw new IllegalArgumentException("Unknown agent " + spec);
+            }
+            if((type.equals("minimax") || type.equals("timed")) && parts.length < 2) {
+                throw new IllegalArgumentException("Missing depth or time in " + spec);
+            }
+            limit = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+
+            String evaluatorName = parts.length > 2 ? parts[2] : "windows";
+            if(evaluatorName.equals("windows")) {
+                evaluator = new WindowEvaluator();
+            }
+            else if(evaluatorName.equals("consecutive")) {
+                evaluator = new ConsecutiveChipsEvaluator();
+            }
+            else {
+                throw new IllegalArgumentException("Unknown evaluator " + evaluatorName);
+            }
+        }
+
+        // returns a new agent playing "color" on "board", searching with "table" if it searches
+        Agent create(Board board, char color, TranspositionTable table) {
+            if(type.equals("minimax") || type.equals("timed")) {
+                table.clear();
+                MinimaxAgent agent = new MinimaxAgent(board, color, limit, table);
+                agent.setEvaluator(evaluator);
+                return agent;
+            }
+            else if(type.equals("solver")) {
+                SolverAgent agent = new SolverAgent(board, color, new Solver(table));
+                agent.setOpeningBook(book);
+                return agent;
+            }
+            return new Agent(board, color);
+        }
+
+        // returns the column "agent" chooses... random agents use "random" so that games can be repeated
+        char getAction(Agent agent, Random random) {
+            if(type.equals("random")) {
+                return Board.letters[random.nextInt(Board.WIDTH)];
+            }
+            else if(type.equals("timed")) {
+                return ((MinimaxAgent) agent).getAction(Duration.ofMillis(limit));
+            }
+            return agent.getAction();
+        }
+    }
+
+    // totals of one agent over every game
+    private static class AgentTotals {
+        int wins;
+        int draws;
+        int losses;
+        long nodes;
+        long searchNanos;
+        long[] moveNanos = new long[64];
+        int moveCount;
+
+        void addMove(long nanos, long states) {
+            if(moveCount == moveNanos.length) {
+                moveNanos = Arrays.copyOf(moveNanos, moveCount * 2);
+            }
+            moveNanos[moveCount++] = nanos;
+            searchNanos += nanos;
+            nodes += states;
+        }
+
+        void add(AgentTotals other) {
+            wins += other.wins;
+            draws += other.draws;
+            losses += other.losses;
+            for(int i = 0; i < other.moveCount; i++) {
+                addMove(other.moveNanos[i], 0);
+            }
+            nodes += other.nodes;
+        }
+
+        int games() {
+            return wins + draws + losses;
+        }
+
+        // returns the move time below which "percent" percent of moves were made, in milliseconds
+        double moveTimePercentile(double percent) {
+            if(moveCount == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(moveNanos, moveCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percent / 100 * moveCount) - 1;
+            return sorted[Math.max(index, 0)] / 1000000.0;
+        }
+    }
+
+    private static OpeningBook book; // used by solver agents, or null
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if(args.length < 3) {
+            System.out.println("Usage: java Tournament <games> <agent> <agent> [--threads n] [--random-plies n]"
+                    + " [--openings file] [--seed n] [--csv file] [--record file]");
+            return;
+        }
+        int games = Integer.parseInt(args[0]);
+        AgentSpec[] specs = {new AgentSpec(args[1]), new AgentSpec(args[2])};
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int randomPlies = DEFAULT_RANDOM_PLIES;
+        List<String> openingFile = null;
+        long seed = 0;
+        String csv = null;
+        GameRecordWriter recorder = null;
+        for(int i = 3; i + 1 < args.length; i += 2) {
+            if(args[i].equals("--threads")) {
+                threads = Integer.parseInt(args[i + 1]);
+            }
+            else if(args[i].equals("--random-plies")) {
+                randomPlies = Integer.parseInt(args[i + 1]);
+            }
+            else if(args[i].equals("--openings")) {
+                openingFile = Files.readAllLines(new File(args[i + 1]).toPath());
+                openingFile.removeIf(line -> line.trim().isEmpty());
+            }
+            else if(args[i].equals("--seed")) {
+                seed = Long.parseLong(args[i + 1]);
+            }
+            else if(args[i].equals("--csv")) {
+                csv = args[i + 1];
+            }
+            else if(args[i].equals("--record")) {
+                // records start from a position key, which boards too large for the empty bits don't have
+                if(!Board.PADDED) {
+                    throw new IllegalArgumentException("--record needs position keys, which a "
+                            + Board.WIDTH + "x" + Board.HEIGHT + " board doesn't have");
+                }
+                recorder = new GameRecordWriter(new File(args[i + 1]));
+            }
+            else {
+                throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        File bookFile = new File(OpeningBook.DEFAULT_FILE);
+        if(bookFile.exists()) {
+            book = OpeningBook.open(bookFile.toPath());
+        }
+
+        // every pair of games starts from the same opening with the colors swapped
+        String[] openings = new String[(games + 1) / 2];
+        Random random = new Random(seed);
+        for(int i = 0; i < openings.length; i++) {
+            openings[i] = openingFile != null ? openingFile.get(i % openingFile.size()).trim()
+                    : randomOpening(random, randomPlies);
+        }
+
+        // each thread keeps a transposition table for each agent, cleared before every game
+        ThreadLocal<TranspositionTable[]> tables = ThreadLocal.withInitial(() -> new TranspositionTable[] {
+                new TranspositionTable(TABLE_MEMORY, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED),
+                new TranspositionTable(TABLE_MEMORY, TranspositionTable.ReplacementPolicy.DEPTH_PREFERRED)});
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<AgentTotals[]>> results = new ArrayList<>(games);
+        final long agentSeed = seed;
+        final GameRecordWriter gameRecorder = recorder;
+        for(int game = 0; game < games; game++) {
+            final int index = game;
+            results.add(executor.submit(() -> playGame(specs, openings[index / 2], index % 2 == 1,
+                    tables.get(), new Random(agentSeed + index), gameRecorder)));
+        }
+
+        long time = System.nanoTime();
+        AgentTotals[] totals = {new AgentTotals(), new AgentTotals()};
+        int finished = 0;
+        try {
+            for(Future<AgentTotals[]> result : results) {
+                AgentTotals[] gameTotals = result.get();
+                totals[0].add(gameTotals[0]);
+                totals[1].add(gameTotals[1]);
+                finished++;
+                if(finished % 100 == 0 || finished == games) {
+                    System.out.printf("%d / %d games (%.0f s)%n", finished, games, (System.nanoTime() - time) / 1000000000.0);
+                }
+            }
+        } finally {
+            // if a game failed, the games still running are stopped so their threads don't keep the JVM alive
+            executor.shutdownNow();
+            if(recorder != null) {
+                recorder.close();
+            }
+        }
+
+        report(specs, totals, csv);
+    }
+
+    // returns "plies" random moves which don't end the game
+    private static String randomOpening(Random random, int plies) {
+        while(true) {
+            Board board = new Board();
+            StringBuilder moves = new StringBuilder();
+            char color = 'r';
+            while(moves.length() < plies && board.getWinner() == null) {
+                int c = random.nextInt(Board.WIDTH);
+                if(board.play(c, color)) {
+                    moves.append(Board.letters[c]);
+                    color = color == 'r' ? 'b' : 'r';
+                }
+            }
+            if(board.getWinner() == null && !board.isTie()) {
+                return moves.toString();
+            }
+        }
+    }
+
+    // plays one game from "opening", with the first agent as red unless "swapped" is true, and
+    // returns the totals of each agent for that game... the game is written to "recorder" if
+    // it isn't null
+    private static AgentTotals[] playGame(AgentSpec[] specs, String opening, boolean swapped,
+                                          TranspositionTable[] tables, Random random,
+                                          GameRecordWriter recorder) throws IOException {
+        Board board = Board.fromMoves(opening);
+        char color = opening.length() % 2 == 0 ? 'r' : 'b';
+
+        GameRecord record = recorder != null ? new GameRecord() : null;
+        if(record != null) {
+            for(char columnLetter : opening.toUpperCase().toCharArray()) {
+                record.addMove(Board.letterDict.get(columnLetter));
+            }
+        }
+
+        // agents[i] is the agent of specs[i]
+        Agent[] agents = new Agent[2];
+        agents[0] = specs[0].create(board, swapped ? 'b' : 'r', tables[0]);
+        agents[1] = specs[1].create(board, swapped ? 'r' : 'b', tables[1]);
+        AgentTotals[] totals = {new AgentTotals(), new AgentTotals()};
+
+        while(board.getWinner() == null && !board.isTie()) {
+            int i = agents[0].getColor() == color ? 0 : 1;
+
+            long time = System.nanoTime();
+            char action = specs[i].getAction(agents[i], random);
+            long elapsedTime = System.nanoTime() - time;
+
+            // random agents can choose a full column, in which case they're asked again
+            if(board.canAdd(action)) {
+                board.add(action, color);
+                if(record != null) {
+                    record.addMove(Board.letterDict.get(action));
+                }
+                totals[i].addMove(elapsedTime, agents[i].getCount());
+                color = color == 'r' ? 'b' : 'r';
+            }
+        }
+
+        for(int i = 0; i < 2; i++) {
+            if(board.isTie()) {
+                totals[i].draws++;
+            }
+            else if(board.getWinner().charAt(0) == agents[i].getColor()) {
+                totals[i].wins++;
+            }
+            else {
+                totals[i].losses++;
+            }
+        }
+
+        if(recorder != null) {
+            record.setResult(board.isTie() ? 't' : board.getWinner().charAt(0));
+            recorder.write(record);
+        }
+        return totals;
+    }
+
+    // prints the results and writes them to "csv" if it isn't null
+    private static void report(AgentSpec[] specs, AgentTotals[] totals, String csv) throws IOException {
+        AgentTotals first = totals[0];
+        int games = first.games();
+        double score = (first.wins + first.draws / 2.0) / games;
+
+        // standard deviation of the score of one game, giving the error of the average score
+        double variance = (first.wins * Math.pow(1 - score, 2) + first.draws * Math.pow(0.5 - score, 2)
+                + first.losses * Math.pow(score, 2)) / games;
+        double margin = 1.96 * Math.sqrt(variance / games);
+        double elo = elo(score);
+        double eloLow = elo(score - margin);
+        double eloHigh = elo(score + margin);
+
+        System.out.println();
+        System.out.printf("%s vs %s: %d games, +%d =%d -%d, score %.1f%%%n", specs[0].spec, specs[1].spec, games,
+                first.wins, first.draws, first.losses, score * 100);
+        System.out.printf("Elo difference: %.1f (95%% interval %.1f to %.1f)%n", elo, eloLow, eloHigh);
+        System.out.println();
+        System.out.println("agent\tstates/s\tmove ms p50\tp90\tp99\tmax");
+        for(int i = 0; i < 2; i++) {
+            System.out.printf("%s\t%.0f\t%.3f\t%.3f\t%.3f\t%.3f%n", specs[i].spec, statesPerSecond(totals[i]),
+                    totals[i].moveTimePercentile(50), totals[i].moveTimePercentile(90),
+                    totals[i].moveTimePercentile(99), totals[i].moveTimePercentile(100));
+        }
+
+        if(csv == null) {
+            return;
+        }
+        try(PrintWriter out = new PrintWriter(csv)) {
+            out.println("agent,opponent,games,wins,draws,losses,score,elo,elo_low,elo_high,states,states_per_second,"
+                    + "move_ms_p50,move_ms_p90,move_ms_p99,move_ms_max");
+            for(int i = 0; i < 2; i++) {
+                AgentTotals t = totals[i];
+                double agentScore = (t.wins + t.draws / 2.0) / games;
+                double sign = i == 0 ? 1 : -1;
+                out.printf("%s,%s,%d,%d,%d,%d,%.4f,%.1f,%.1f,%.1f,%d,%.0f,%.3f,%.3f,%.3f,%.3f%n", specs[i].spec,
+                        specs[1 - i].spec, games, t.wins, t.draws, t.losses, agentScore, sign * elo,
+                        i == 0 ? eloLow : -eloHigh, i == 0 ? eloHigh : -eloLow, t.nodes, statesPerSecond(t),
+                        t.moveTimePercentile(50), t.moveTimePercentile(90), t.moveTimePercentile(99),
+                        t.moveTimePercentile(100));
+            }
+        }
+        System.out.println("Wrote " + csv);
+    }
+
+    // returns the Elo difference which makes "score" the expected score, clamped to a finite value
+    private static double elo(double score) {
+        score = Math.min(Math.max(score, 0.001), 0.999);
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double statesPerSecond(AgentTotals totals) {
+        return totals.searchNanos == 0 ? 0 : totals.nodes / (totals.searchNanos / 1000000000.0);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+    Fixed-size cache of searched positions, keyed by a 64-bit position hash.
+    Each entry packs its score, search depth, bound type and best move into
+    a single long, and is stored in two parallel arrays so that the table
+    holds no objects. The key array stores the hash XORed with the packed
+    data, which lets a probe detect an entry that was only partly written
+
+    Entries also record the generation they were stored in, which is
+    advanced by newSearch(). DEPTH_PREFERRED only keeps a deeper entry
+    from the current generation, so a table shared by many searches,
+    as in MoveServer, doesn't fill up with deep positions of searches
+    which ended long ago
+*/
+public class TranspositionTable {
+
+    // bound types describing how a stored score relates to the real value of a position
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    public static final int NO_MOVE = -1; // best move stored when no move was searched
+
+    public static final long DEFAULT_MEMORY = 16L * 1024 * 1024; // default size of the table in bytes
+
+    private static final int ENTRY_BYTES = 16; // one long in each of keys and data
+
+    // layout of the packed data: score in the low 32 bits, then depth, bound, move, a used flag and generation
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final long USED = 1L << 50;
+    private static final int GENERATION_SHIFT = 51;
+
+    // policies deciding whether a new entry overwrites the entry already in its slot
+    public enum ReplacementPolicy {
+        ALWAYS, // newest entry always wins
+        DEPTH_PREFERRED // keep the existing entry if it was searched deeper than the new one in the same generation
+    }
+
+    private final long[] keys; // position hash XOR packed data for each slot
+    private final long[] data; // packed data for each slot
+    private final int mask; // number of slots - 1, used to map a hash to a slot
+    private final ReplacementPolicy policy;
+
+    // generation of new entries, from 0 to 255... searches sharing the table may advance it at
+    // the same time, and a lost increment only lets entries be replaced a little later
+    private volatile int generation;
+
+    // default constructor uses DEFAULT_MEMORY and prefers deeper entries
+    public TranspositionTable() {
+        this(DEFAULT_MEMORY, ReplacementPolicy.DEPTH_PREFERRED);
+    }
+
+    // number of slots is the largest power of two that fits in "memoryBytes"
+    public TranspositionTable(long memoryBytes, ReplacementPolicy policy) {
+        long slots = Long.highestOneBit(Math.max(1, memoryBytes / ENTRY_BYTES));
+        if(slots > (1 << 30)) {
+            slots = 1 << 30;
+        }
+
+        keys = new long[(int) slots];
+        data = new long[(int) slots];
+        mask = (int) slots - 1;
+        this.policy = policy;
+    }
+
+    // returns the packed entry stored for "key", or 0 if there is none
+    public long probe(long key) {
+        int slot = (int) key & mask;
+        long entry = data[slot];
+        if((keys[slot] ^ entry) != key || entry == 0) {
+            return 0;
+        }
+        return entry;
+    }
+
+    // store a searched position, subject to the replacement policy
+    public void store(long key, int score, int depth, int bound, int move) {
+        int slot = (int) key & mask;
+
+        long old = data[slot];
+        int currentGeneration = generation;
+        if(policy == ReplacementPolicy.DEPTH_PREFERRED && old != 0 && (keys[slot] ^ old) != key
+                && depth(old) > depth && generation(old) == currentGeneration) {
+            return;
+        }
+
+        long entry = (score & 0xFFFFFFFFL)
+                | ((long) (depth & 0xFF) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) (move + 1) << MOVE_SHIFT)
+                | USED
+                | ((long) currentGeneration << GENERATION_SHIFT);
+        keys[slot] = key ^ entry;
+        data[slot] = entry;
+    }
+
+    // starts a new generation, after which the entries of earlier searches can be replaced by any new entry
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    // remove all entries
+    public void clear() {
+        for(int i = 0; i < data.length; i++) {
+            keys[i] = 0;
+            data[i] = 0;
+        }
+    }
+
+    // returns number of entries the table can hold
+    public int size() {
+        return data.length;
+    }
+
+    // the following methods unpack fields from an entry returned by probe()
+
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT) & 0x3;
+    }
+
+    public static int move(long entry) {
+        return ((int) (entry >>> MOVE_SHIFT) & 0xFF) - 1;
+    }
+
+    public static int generation(long entry) {
+        return (int) (entry >>> GENERATION_SHIFT) & 0xFF;
+    }
+
+    public ReplacementPolicy getPolicy() {
+        return policy;
+    }
+}
@@ -6,6 +6,7 @@ public class TwoAgentGame {
 
     private Agent agent1;
     private Agent agent2;
+    private GameLogger logger = new GameLogger(GameLogger.Mode.VERBOSE);
 
     public TwoAgentGame(Board board, Agent agent1, Agent agent2) {
         this.board = board;
@@ -30,10 +31,7 @@ public class TwoAgentGame {
             board.add(agentAction, agent.getColor());
             playerOneTurn = !playerOneTurn;
 
-            System.out.println(board);
-            System.out.println("Elapsed time: " + elapsedTime / 1000000000);
-            System.out.println("States Expanded: " + agent.getCount());
-            System.out.println();
+            logger.agentMove(null, board, agent.getColor(), agentAction, elapsedTime, agent.getCount());
         }
     }
 
@@ -49,12 +47,7 @@ public class TwoAgentGame {
                     board.add(agentAction, color);
                     playerOneTurn = !playerOneTurn;
 
-                    System.out.println("Red's turn:");
-                    System.out.println(board);
-                    System.out.println("Elapsed time: " + elapsedTime / 1000000000);
-                    System.out.println("States Expanded: " + agent1.getCount());
-                    System.out.println();
-
+                    logger.agentMove("Red's turn:", board, color, agentAction, elapsedTime, agent1.getCount());
                 }
 
             }
@@ -67,28 +60,12 @@ public class TwoAgentGame {
                     board.add(agentAction, color);
                     playerOneTurn = !playerOneTurn;
 
-                    System.out.println("Black's turn:");
-                    System.out.println(board);
-                    System.out.println("Elapsed time: " + elapsedTime / 1000000000);
-                    System.out.println("States Expanded: " + agent2.getCount());
-                    System.out.println();
-
+                    logger.agentMove("Black's turn:", board, color, agentAction, elapsedTime, agent2.getCount());
                 }
             }
         }
 
-        if(board.isTie()) {
-            System.out.println("Tie Game!");
-            System.out.println();
-        }
-        else if(board.getWinner().equals("r")) {
-            System.out.println("Red wins!");
-            System.out.println();
-        }
-        else {
-            System.out.println("Black wins!");
-            System.out.println();
-        }
+        logger.result(board, true);
 
         gameFinished = true;
 
@@ -97,4 +74,12 @@ public class TwoAgentGame {
     public boolean isPlayerOneTurn() {
         return playerOneTurn;
     }
+
+    public GameLogger getLogger() {
+        return logger;
+    }
+
+    public void setLogger(GameLogger logger) {
+        this.logger = logger;
+    }
 }
@@ -0,0 +1,11 @@
+/*
+    Evaluator which rates a board by its window score, which the
+    board updates as chips are added and removed, so evaluating
+    a board takes constant time
+*/
+public class WindowEvaluator implements Evaluator {
+
+    public int evaluate(Board board, char color, char otherColor) {
+        return board.getWindowScore(color);
+    }
+}